@@ -0,0 +1,127 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Warning sink for the bridge, replacing direct {@link Log} calls on paths
+ * Dart can hit every frame (flag lookups before init, a misconfigured flag
+ * read in a build method).
+ *
+ * Each call names a key for what went wrong. The first warning for a key
+ * goes to logcat; repeats within {@link #WINDOW_MILLIS} are only counted,
+ * and the next warning after the window reports how many were suppressed.
+ * Messages are built by a {@link Message} only when they are actually
+ * written, and a muted log returns before touching any state.
+ *
+ * Written warnings are also kept in a ring of the last
+ * {@link #DEFAULT_CAPACITY}, which Dart reads through `getBridgeLog`.
+ *
+ * Safe to call from any thread.
+ */
+final class BridgeLog {
+
+    static final String TAG = "Mixpanel";
+    static final long WINDOW_MILLIS = 10_000;
+    static final int DEFAULT_CAPACITY = 64;
+    // Keys are constants at the call sites; this only guards against a
+    // caller building them from data.
+    static final int MAX_KEYS = 256;
+
+    static final BridgeLog instance = new BridgeLog(DEFAULT_CAPACITY);
+
+    /** Builds a message; only called when the message is written. */
+    interface Message {
+        String format();
+    }
+
+    private static final class KeyState {
+        long windowStart;
+        int suppressed;
+    }
+
+    private final Map<String, KeyState> keys = new HashMap<>();
+    private final Map<String, Object>[] ring;
+    private int next;
+    private int size;
+    private volatile boolean muted;
+
+    @SuppressWarnings("unchecked")
+    BridgeLog(int capacity) {
+        ring = new Map[capacity];
+    }
+
+    void setMuted(boolean muted) {
+        this.muted = muted;
+    }
+
+    void w(String key, Message message) {
+        if (muted) {
+            return;
+        }
+        log(key, message, SystemClock.elapsedRealtime());
+    }
+
+    /** Returns the message written, or null if it was suppressed. */
+    String log(String key, Message message, long now) {
+        int suppressed;
+        synchronized (this) {
+            KeyState state = keys.get(key);
+            if (state != null && now - state.windowStart < WINDOW_MILLIS) {
+                state.suppressed++;
+                return null;
+            }
+            if (state == null) {
+                if (keys.size() >= MAX_KEYS) {
+                    keys.clear();
+                }
+                state = new KeyState();
+                keys.put(key, state);
+            }
+            suppressed = state.suppressed;
+            state.windowStart = now;
+            state.suppressed = 0;
+        }
+        String text = message.format();
+        if (suppressed > 0) {
+            Log.w(TAG, text + " (" + suppressed + " similar suppressed)");
+        } else {
+            Log.w(TAG, text);
+        }
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("time", System.currentTimeMillis());
+        entry.put("key", key);
+        entry.put("message", text);
+        entry.put("suppressed", suppressed);
+        synchronized (this) {
+            ring[next] = entry;
+            next = (next + 1) % ring.length;
+            size = Math.min(size + 1, ring.length);
+        }
+        return text;
+    }
+
+    /** Written warnings, oldest first. */
+    synchronized List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> entries = new ArrayList<>(size);
+        int first = (next - size + ring.length) % ring.length;
+        for (int i = 0; i < size; i++) {
+            entries.add(ring[(first + i) % ring.length]);
+        }
+        return entries;
+    }
+
+    synchronized void clear() {
+        keys.clear();
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = null;
+        }
+        next = 0;
+        size = 0;
+    }
+}
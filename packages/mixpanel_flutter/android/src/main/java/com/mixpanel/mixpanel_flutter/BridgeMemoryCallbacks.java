@@ -0,0 +1,55 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Releases bridge-side memory when the system asks for it. Registered once
+ * per process, since everything it trims (the event bridge backlog, the
+ * event journal mapping, the encode buffer pools) is process-wide as well.
+ */
+final class BridgeMemoryCallbacks implements ComponentCallbacks2 {
+
+    private static BridgeMemoryCallbacks instance;
+
+    private BridgeMemoryCallbacks() {
+    }
+
+    static synchronized void register(Context context) {
+        if (instance == null) {
+            instance = new BridgeMemoryCallbacks();
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // Only the running-pressure levels; UI_HIDDEN and above mean the app
+        // went to the background, which alone is no reason to drop events.
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level < TRIM_MEMORY_UI_HIDDEN) {
+            EventBridgeSubscriber.onTrimMemory(level);
+        }
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            EventJournal journal = EventJournal.get();
+            if (journal != null) {
+                journal.releaseIfEmpty();
+            }
+            EncodeBufferPool.trim();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        // The whole system is short on memory, so unlike a background trim
+        // this also caps the event bridge backlog.
+        EventBridgeSubscriber.onTrimMemory(TRIM_MEMORY_RUNNING_CRITICAL);
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+}
@@ -0,0 +1,124 @@
+package com.mixpanel.mixpanel_flutter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Per-thread scratch space for encoding outgoing channel messages, so replies
+ * and event bridge calls stop allocating a stream and a direct buffer each.
+ *
+ * Messages are written into a stream that keeps its backing array between
+ * encodes, then copied into a direct buffer of the smallest size class that
+ * fits. The engine copies a message out of its buffer before
+ * {@code BinaryMessenger.send} or {@code Reply.reply} returns, and encode and
+ * send always run back to back on the same thread, so a thread's buffers can
+ * be handed out again on its next encode.
+ *
+ * Both the stream and the pooled classes follow recent message sizes: every
+ * {@link #WINDOW} encodes, anything larger than twice the window's biggest
+ * message is released. Messages over {@link #MAX_POOLED_BYTES} get a fresh
+ * buffer and are not pooled.
+ */
+final class EncodeBufferPool {
+
+    static final int MIN_CLASS_BYTES = 256;
+    static final int MAX_POOLED_BYTES = 64 * 1024;
+    static final int WINDOW = 64;
+
+    private static final int CLASS_COUNT =
+            Integer.numberOfTrailingZeros(MAX_POOLED_BYTES / MIN_CLASS_BYTES) + 1;
+
+    private static final ThreadLocal<EncodeBufferPool> pools =
+            ThreadLocal.withInitial(EncodeBufferPool::new);
+
+    // Bumped on memory pressure; each thread drops its pool the next time it
+    // encodes, since other threads' locals can't be reached from here.
+    private static volatile int generation;
+
+    private final ByteBuffer[] buffers = new ByteBuffer[CLASS_COUNT];
+    private ExposedStream stream = new ExposedStream(MIN_CLASS_BYTES);
+    private int poolGeneration = generation;
+    private int encodes;
+    private int windowMax;
+
+    static EncodeBufferPool get() {
+        EncodeBufferPool pool = pools.get();
+        if (pool.poolGeneration != generation) {
+            pool = new EncodeBufferPool();
+            pools.set(pool);
+        }
+        return pool;
+    }
+
+    /** Releases every thread's pooled memory the next time it encodes. */
+    static void trim() {
+        generation++;
+    }
+
+    /** Returns this thread's empty stream to encode one message into. */
+    ByteArrayOutputStream begin() {
+        stream.reset();
+        return stream;
+    }
+
+    /**
+     * Copies what was written since {@link #begin()} into a direct buffer,
+     * positioned at the end of the message as the messenger expects. The
+     * buffer is only valid until this thread's next encode.
+     */
+    ByteBuffer finish() {
+        int size = stream.size();
+        ByteBuffer buffer;
+        if (size > MAX_POOLED_BYTES) {
+            buffer = ByteBuffer.allocateDirect(size);
+        } else {
+            int sizeClass = classFor(size);
+            buffer = buffers[sizeClass];
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(MIN_CLASS_BYTES << sizeClass);
+                buffers[sizeClass] = buffer;
+            }
+            buffer.clear();
+        }
+        buffer.put(stream.buffer(), 0, size);
+        record(size);
+        return buffer;
+    }
+
+    static int classFor(int size) {
+        if (size <= MIN_CLASS_BYTES) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros((size - 1) / MIN_CLASS_BYTES);
+    }
+
+    private void record(int size) {
+        windowMax = Math.max(windowMax, size);
+        if (++encodes < WINDOW) {
+            return;
+        }
+        int keep = Math.max(MIN_CLASS_BYTES, windowMax * 2);
+        if (stream.capacity() > keep) {
+            stream = new ExposedStream(Math.min(keep, MAX_POOLED_BYTES));
+        }
+        for (int i = CLASS_COUNT - 1; i > 0 && (MIN_CLASS_BYTES << i) > keep; i--) {
+            buffers[i] = null;
+        }
+        encodes = 0;
+        windowMax = 0;
+    }
+
+    private static final class ExposedStream extends ByteArrayOutputStream {
+        ExposedStream(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+/**
+ * Append-only journal for `track` calls that arrive while no
+ * {@link MixpanelAPI} instance is available, i.e. before `initialize` has
+ * completed or after the engine detached. Events are written into a
+ * memory-mapped file, so a process death keeps them (the kernel owns the
+ * dirty pages) without an fsync or database write per event; they are
+ * replayed in order into the next instance initialized for their token.
+ * Events journaled without a token (a channel `track` before the engine's
+ * first `initialize`) go to whichever instance initializes next.
+ *
+ * Layout: a sequence of records, each a 4-byte length followed by that many
+ * bytes of UTF-8 JSON
+ * {@code {"token": ..., "event": ..., "properties": {...}}}. A zero
+ * length marks the end. A record's length is written last, so a process
+ * killed mid-append leaves the journal ending at the previous record.
+ *
+ * The capture time is stored as the `time` property so replayed events keep
+ * their original timestamp. When the journal is full, new events are
+ * dropped with a warning.
+ */
+final class EventJournal {
+
+    private static final String FILE_NAME = "mixpanel_flutter_event_journal";
+    private static final Charset UTF8 = Charset.forName("UTF8");
+    private static final int LENGTH_BYTES = 4;
+
+    static final int CAPACITY_BYTES = 256 * 1024;
+
+    private static EventJournal instance;
+
+    private final File file;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+
+    @VisibleForTesting
+    EventJournal(File file) {
+        this.file = file;
+    }
+
+    /** Remembers where the journal lives. Cheap; the file is only opened on first use. */
+    static synchronized void install(Context context) {
+        if (instance == null) {
+            instance = new EventJournal(new File(context.getApplicationContext().getNoBackupFilesDir(), FILE_NAME));
+        }
+    }
+
+    /** @return the journal, or null if no engine has attached in this process yet */
+    static synchronized EventJournal get() {
+        return instance;
+    }
+
+    /** @return false if the event could not be journaled and was dropped */
+    synchronized boolean append(String token, String eventName, JSONObject properties) {
+        byte[] record;
+        try {
+            JSONObject stamped = properties == null ? new JSONObject() : new JSONObject(properties.toString());
+            if (!stamped.has("time")) {
+                stamped.put("time", System.currentTimeMillis());
+            }
+            record = new JSONObject()
+                    .putOpt("token", token)
+                    .put("event", eventName)
+                    .put("properties", stamped)
+                    .toString()
+                    .getBytes(UTF8);
+        } catch (JSONException e) {
+            BridgeLog.instance.w("journal.unencodable", () -> "Could not journal '" + eventName + "': " + e.getMessage());
+            return false;
+        }
+        if (!ensureMapped()) {
+            return false;
+        }
+        int end = writePosition + LENGTH_BYTES + record.length;
+        if (end > CAPACITY_BYTES) {
+            BridgeLog.instance.w("journal.full", () -> "Event journal is full, dropping '" + eventName + "'");
+            return false;
+        }
+        // Terminate first, then the payload, then the length that makes the
+        // record visible to a reader.
+        if (end + LENGTH_BYTES <= CAPACITY_BYTES) {
+            buffer.putInt(end, 0);
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(writePosition + LENGTH_BYTES);
+        payload.put(record);
+        buffer.putInt(writePosition, record.length);
+        writePosition = end;
+        return true;
+    }
+
+    /**
+     * Tracks the journaled events of {@code token}, and those journaled
+     * without one, on {@code mixpanel}, merged with the caller's library
+     * properties. Events of other tokens are kept, in order, for their own
+     * instance. A crash part way through may replay some events twice on the
+     * next start.
+     */
+    synchronized void replayInto(String token, MixpanelAPI mixpanel, JSONObject mixpanelProperties) {
+        if (buffer == null && file.length() == 0) {
+            return;
+        }
+        if (!ensureMapped() || writePosition == 0) {
+            return;
+        }
+        int position = 0;
+        int kept = 0;
+        while (position < writePosition) {
+            int length = buffer.getInt(position);
+            byte[] record = new byte[length];
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(position + LENGTH_BYTES);
+            payload.get(record);
+            position += LENGTH_BYTES + length;
+            try {
+                JSONObject entry = new JSONObject(new String(record, UTF8));
+                String recordToken = entry.optString("token", null);
+                if (recordToken != null && !recordToken.equals(token)) {
+                    // Compact in place; kept never passes the read position.
+                    ByteBuffer keep = buffer.duplicate();
+                    keep.position(kept + LENGTH_BYTES);
+                    keep.put(record);
+                    buffer.putInt(kept, length);
+                    kept += LENGTH_BYTES + length;
+                    continue;
+                }
+                JSONObject properties = entry.optJSONObject("properties");
+                properties = MixpanelFlutterHelper.getMergedProperties(
+                        properties == null ? new JSONObject() : properties, mixpanelProperties);
+                mixpanel.track(entry.getString("event"), properties);
+            } catch (JSONException e) {
+                BridgeLog.instance.w("journal.unreadableRecord", () -> "Skipping unreadable journal record: " + e.getMessage());
+            }
+        }
+        for (int i = kept; i < writePosition; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        writePosition = kept;
+    }
+
+    /**
+     * Drops the mapping when nothing is journaled; it is remapped on the next
+     * append. A non-empty journal stays mapped so its records aren't lost.
+     */
+    synchronized void releaseIfEmpty() {
+        if (buffer != null && writePosition == 0) {
+            buffer = null;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized boolean isMapped() {
+        return buffer != null;
+    }
+
+    private boolean ensureMapped() {
+        if (buffer != null) {
+            return true;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // The mapping stays valid after the channel is closed.
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY_BYTES);
+        } catch (IOException e) {
+            BridgeLog.instance.w("journal.unmapped", () -> "Could not open event journal: " + e.getMessage());
+            return false;
+        }
+        writePosition = scanEnd();
+        return true;
+    }
+
+    /** Finds the end of the last complete record left by this or a previous process. */
+    private int scanEnd() {
+        int position = 0;
+        while (position + LENGTH_BYTES <= CAPACITY_BYTES) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + LENGTH_BYTES + length > CAPACITY_BYTES) {
+                break;
+            }
+            position += LENGTH_BYTES + length;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,152 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+import com.mixpanel.android.mpmetrics.MixpanelFlagVariant;
+
+/**
+ * Pushes feature flag state to Dart so flag-gated UI doesn't have to poll
+ * `areFlagsReady` / `getVariant` over the channel.
+ *
+ * Once Dart asks for updates, the watcher sends `onFlagsReady` the first
+ * time the flags of the current instance are ready, followed by an
+ * `onVariantsChanged` call carrying every variant. After that each
+ * {@link #refresh()} (the plugin calls it whenever a flag load or context
+ * update completes) sends only the flags whose variant changed, with null
+ * for flags that went away.
+ *
+ * The native SDK has no readiness callback, so readiness is polled here,
+ * on the platform thread, backing off from {@link #FIRST_POLL_MILLIS} to
+ * {@link #MAX_POLL_MILLIS} and giving up after {@link #POLL_LIMIT_MILLIS}.
+ *
+ * All methods must be called on the platform thread.
+ */
+class FlagUpdatesWatcher {
+
+    static final long FIRST_POLL_MILLIS = 50;
+    static final long MAX_POLL_MILLIS = 1000;
+    static final long POLL_LIMIT_MILLIS = 60_000;
+
+    /** Converts a variant to the map the channel sends for it. */
+    interface VariantConverter {
+        Map<String, Object> toMap(MixpanelFlagVariant variant);
+    }
+
+    private final Handler handler;
+    private final VariantConverter converter;
+    private final Runnable poll = this::pollReady;
+
+    private MethodChannel channel;
+    private MixpanelAPI mixpanel;
+    private boolean ready;
+    private Map<String, Map<String, Object>> lastVariants = new HashMap<>();
+    private long pollDelayMillis;
+    private long pollStartedAt;
+
+    FlagUpdatesWatcher(VariantConverter converter) {
+        this(new Handler(Looper.getMainLooper()), converter);
+    }
+
+    FlagUpdatesWatcher(Handler handler, VariantConverter converter) {
+        this.handler = handler;
+        this.converter = converter;
+    }
+
+    /** Starts pushing updates for the current instance over {@code channel}. */
+    void start(MethodChannel channel) {
+        this.channel = channel;
+        if (mixpanel != null) {
+            watch(mixpanel);
+        }
+    }
+
+    void stop() {
+        channel = null;
+        handler.removeCallbacks(poll);
+    }
+
+    /**
+     * Switches to a newly initialized instance. Its readiness and variants
+     * are reported afresh.
+     */
+    void watch(MixpanelAPI mixpanel) {
+        this.mixpanel = mixpanel;
+        ready = false;
+        lastVariants = new HashMap<>();
+        handler.removeCallbacks(poll);
+        if (channel != null && mixpanel != null) {
+            pollDelayMillis = FIRST_POLL_MILLIS;
+            pollStartedAt = SystemClock.elapsedRealtime();
+            pollReady();
+        }
+    }
+
+    /** Sends the variants that changed since the last push, if any. */
+    void refresh() {
+        if (channel == null || mixpanel == null) {
+            return;
+        }
+        if (!ready) {
+            // A load just completed; check now instead of at the next poll.
+            handler.removeCallbacks(poll);
+            pollReady();
+            return;
+        }
+        MixpanelAPI instance = mixpanel;
+        instance.getFlags().getAllVariants(variants -> {
+            Map<String, Map<String, Object>> converted = new HashMap<>();
+            for (Map.Entry<String, MixpanelFlagVariant> entry : variants.entrySet()) {
+                converted.put(entry.getKey(), converter.toMap(entry.getValue()));
+            }
+            handler.post(() -> onVariants(instance, converted));
+        });
+    }
+
+    private void pollReady() {
+        if (channel == null || mixpanel == null || ready) {
+            return;
+        }
+        if (mixpanel.getFlags().areFlagsReady()) {
+            ready = true;
+            channel.invokeMethod("onFlagsReady", null);
+            refresh();
+            return;
+        }
+        if (SystemClock.elapsedRealtime() - pollStartedAt >= POLL_LIMIT_MILLIS) {
+            // Flags may still arrive through loadFlags or a context update,
+            // which call refresh() and check again.
+            return;
+        }
+        handler.postDelayed(poll, pollDelayMillis);
+        pollDelayMillis = Math.min(pollDelayMillis * 2, MAX_POLL_MILLIS);
+    }
+
+    private void onVariants(MixpanelAPI instance, Map<String, Map<String, Object>> variants) {
+        if (instance != mixpanel || channel == null) {
+            return;
+        }
+        Map<String, Object> changed = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : variants.entrySet()) {
+            if (!entry.getValue().equals(lastVariants.get(entry.getKey()))) {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String name : lastVariants.keySet()) {
+            if (!variants.containsKey(name)) {
+                changed.put(name, null);
+            }
+        }
+        lastVariants = variants;
+        if (!changed.isEmpty()) {
+            channel.invokeMethod("onVariantsChanged", changed);
+        }
+    }
+}
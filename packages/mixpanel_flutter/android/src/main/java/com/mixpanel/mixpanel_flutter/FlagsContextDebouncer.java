@@ -0,0 +1,91 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+/**
+ * Coalesces `updateFlagsContext` calls so that a burst of context changes
+ * (login, onboarding) results in one flag refetch instead of one per call.
+ *
+ * The first update in a quiet period opens a window; updates arriving while
+ * it is open replace the pending context. When the window closes only the
+ * latest context is applied, and every result collected during the window
+ * completes when that single fetch does, or fails with it. {@code onApplied}
+ * runs after each successful fetch, on whatever thread the native SDK
+ * completes it on.
+ *
+ * All methods must be called on the platform thread.
+ */
+class FlagsContextDebouncer {
+
+    static final long DEFAULT_WINDOW_MILLIS = 300;
+
+    private final Handler handler;
+    private final long windowMillis;
+    private final Runnable applyPending = this::applyPending;
+    private final Runnable onApplied;
+
+    private MixpanelAPI pendingInstance;
+    private Map<String, Object> pendingContext;
+    private List<Result> pendingResults = new ArrayList<>();
+
+    FlagsContextDebouncer(Runnable onApplied) {
+        this(new Handler(Looper.getMainLooper()), DEFAULT_WINDOW_MILLIS, onApplied);
+    }
+
+    FlagsContextDebouncer(Handler handler, long windowMillis, Runnable onApplied) {
+        this.handler = handler;
+        this.windowMillis = windowMillis;
+        this.onApplied = onApplied;
+    }
+
+    void requestUpdate(MixpanelAPI mixpanel, Map<String, Object> context, Result result) {
+        pendingInstance = mixpanel;
+        pendingContext = context;
+        pendingResults.add(result);
+        if (pendingResults.size() == 1) {
+            handler.postDelayed(applyPending, windowMillis);
+        }
+    }
+
+    /**
+     * Applies any pending context right away. Called when the engine
+     * detaches so no Dart future is left pending.
+     */
+    void drain() {
+        handler.removeCallbacks(applyPending);
+        applyPending();
+    }
+
+    private void applyPending() {
+        if (pendingResults.isEmpty()) {
+            return;
+        }
+        List<Result> covered = pendingResults;
+        MixpanelAPI instance = pendingInstance;
+        Map<String, Object> context = pendingContext;
+        pendingResults = new ArrayList<>();
+        pendingInstance = null;
+        pendingContext = null;
+        instance.getFlags().setContext(context, success -> {
+            if (!success) {
+                for (Result result : covered) {
+                    result.error("UPDATE_FLAGS_CONTEXT_FAILED", "Failed to update feature flags context", null);
+                }
+                return;
+            }
+            onApplied.run();
+            for (Result result : covered) {
+                result.success(null);
+            }
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+/**
+ * Coalesces `flush` calls coming from Dart so that defensive flushes on
+ * lifecycle changes don't each turn into a separate upload attempt.
+ *
+ * The first request in a quiet period is handed to {@link MixpanelAPI#flush()}
+ * immediately and opens a window. Requests arriving while the window is open
+ * are parked; when it closes, a single trailing flush of every instance they
+ * asked for (more than one if a re-initialize switched tokens inside the
+ * window) covers all of them and their results are completed once it has
+ * been dispatched. The native SDK
+ * does not report flush completion, so the window stands in for the time a
+ * flush is considered in flight. Requests without an instance (made before
+ * `initialize`) are completed without flushing.
+ *
+ * All methods must be called on the platform thread.
+ */
+class FlushCoalescer {
+
+    static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+    private final Handler handler;
+    private final long windowMillis;
+    private final Runnable closeWindow = this::onWindowClosed;
+
+    private boolean windowOpen;
+    private Set<MixpanelAPI> pendingInstances = new LinkedHashSet<>();
+    private List<Result> pendingResults = new ArrayList<>();
+
+    FlushCoalescer() {
+        this(new Handler(Looper.getMainLooper()), DEFAULT_WINDOW_MILLIS);
+    }
+
+    FlushCoalescer(Handler handler, long windowMillis) {
+        this.handler = handler;
+        this.windowMillis = windowMillis;
+    }
+
+    void requestFlush(MixpanelAPI mixpanel, Result result) {
+        if (windowOpen) {
+            if (mixpanel != null) {
+                pendingInstances.add(mixpanel);
+            }
+            pendingResults.add(result);
+            return;
+        }
+        if (mixpanel != null) {
+            mixpanel.flush();
+        }
+        result.success(null);
+        openWindow();
+    }
+
+    /**
+     * Runs any parked flush right away and resets the window. Called when the
+     * engine detaches so no Dart future is left pending.
+     */
+    void drain() {
+        handler.removeCallbacks(closeWindow);
+        windowOpen = false;
+        flushPending();
+    }
+
+    private void onWindowClosed() {
+        windowOpen = false;
+        if (flushPending()) {
+            openWindow();
+        }
+    }
+
+    private boolean flushPending() {
+        if (pendingResults.isEmpty()) {
+            return false;
+        }
+        List<Result> covered = pendingResults;
+        Set<MixpanelAPI> instances = pendingInstances;
+        pendingResults = new ArrayList<>();
+        pendingInstances = new LinkedHashSet<>();
+        for (MixpanelAPI instance : instances) {
+            instance.flush();
+        }
+        for (Result result : covered) {
+            result.success(null);
+        }
+        return true;
+    }
+
+    private void openWindow() {
+        windowOpen = true;
+        handler.postDelayed(closeWindow, windowMillis);
+    }
+}
@@ -0,0 +1,55 @@
+package com.mixpanel.mixpanel_flutter;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+/**
+ * Bounded LRU of group profile handles, so repeated updates to the same
+ * group (as `groupBatch` sends them when an account loads) don't resolve
+ * the handle through {@link MixpanelAPI#getGroup} every time.
+ *
+ * Handles belong to one instance; switching instances empties the cache.
+ */
+final class GroupHandleCache {
+
+    static final int DEFAULT_CAPACITY = 32;
+
+    private final Map<List<Object>, MixpanelAPI.Group> handles;
+    private MixpanelAPI owner;
+
+    GroupHandleCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    GroupHandleCache(int capacity) {
+        handles = new LinkedHashMap<List<Object>, MixpanelAPI.Group>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, MixpanelAPI.Group> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized MixpanelAPI.Group get(MixpanelAPI mixpanel, String groupKey, Object groupID) {
+        if (mixpanel != owner) {
+            handles.clear();
+            owner = mixpanel;
+        }
+        List<Object> key = Arrays.asList(groupKey, groupID);
+        MixpanelAPI.Group group = handles.get(key);
+        if (group == null) {
+            group = mixpanel.getGroup(groupKey, groupID);
+            handles.put(key, group);
+        }
+        return group;
+    }
+
+    synchronized void clear() {
+        handles.clear();
+        owner = null;
+    }
+}
@@ -0,0 +1,112 @@
+package com.mixpanel.mixpanel_flutter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serial background lanes for the method channel, one per family of calls,
+ * so a slow flag callback or profile write never holds up event tracking.
+ *
+ * Calls run in arrival order within a lane; there is no ordering between
+ * lanes. Calls that change state every lane depends on (initialize,
+ * identity, opt-out) go to {@link Lane#ALL}, which acts as a barrier: every
+ * lane finishes what was submitted before it, the call runs alone, and only
+ * then do the lanes continue.
+ *
+ * Tasks must be submitted from a single thread (the platform thread) so all
+ * lanes see barriers in the same order. Idle lanes give up their thread
+ * after {@link #IDLE_TIMEOUT_SECONDS}.
+ */
+final class HandlerLanes {
+
+    enum Lane {
+        /** Tracking, super properties, identity reads, flush. */
+        EVENTS,
+        /** People and group profile updates. */
+        PEOPLE,
+        /** Feature flag lookups and context updates. */
+        FLAGS,
+        /** Barrier across all lanes. */
+        ALL
+    }
+
+    private static final long IDLE_TIMEOUT_SECONDS = 30;
+
+    private final ThreadPoolExecutor events = newLane("events");
+    private final ThreadPoolExecutor people = newLane("people");
+    private final ThreadPoolExecutor flags = newLane("flags");
+
+    void execute(Lane lane, Runnable task) {
+        switch (lane) {
+            case EVENTS:
+                events.execute(task);
+                break;
+            case PEOPLE:
+                people.execute(task);
+                break;
+            case FLAGS:
+                flags.execute(task);
+                break;
+            case ALL:
+                barrier(task);
+                break;
+        }
+    }
+
+    /**
+     * Runs queued work, then {@code lastTask} as a barrier, then stops the
+     * lanes. Nothing submitted afterwards runs.
+     */
+    void shutdown(Runnable lastTask) {
+        barrier(lastTask);
+        events.shutdown();
+        people.shutdown();
+        flags.shutdown();
+    }
+
+    private void barrier(Runnable task) {
+        // The people and flags lanes park until the task has run on the
+        // events lane, which itself waits until both have parked.
+        CountDownLatch parked = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(1);
+        Runnable park = () -> {
+            parked.countDown();
+            awaitUninterruptibly(done);
+        };
+        people.execute(park);
+        flags.execute(park);
+        events.execute(() -> {
+            awaitUninterruptibly(parked);
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadPoolExecutor newLane(String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+                IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "mixpanel-flutter-" + name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -23,6 +23,18 @@ public class MixpanelFlutterHelper {
     }
 
     static public Map<String, Object> toMap(JSONObject object) throws JSONException {
+        if (!MixpanelTrace.isEnabled()) {
+            return toMapInternal(object);
+        }
+        MixpanelTrace.begin("MixpanelFlutterHelper.toMap");
+        try {
+            return toMapInternal(object);
+        } finally {
+            MixpanelTrace.end();
+        }
+    }
+
+    static private Map<String, Object> toMapInternal(JSONObject object) throws JSONException {
         Map<String, Object> map = new HashMap<>();
         Iterator<String> keys = object.keys();
         while (keys.hasNext()) {
@@ -44,7 +56,7 @@ public class MixpanelFlutterHelper {
         if (json == JSONObject.NULL) {
             return null;
         } else if (json instanceof JSONObject) {
-            return toMap((JSONObject) json);
+            return toMapInternal((JSONObject) json);
         } else if (json instanceof JSONArray) {
             return toList((JSONArray) json);
         } else {
@@ -52,5 +64,80 @@ public class MixpanelFlutterHelper {
         }
     }
 
+    /**
+     * Returns the entries of {@code properties} whose value differs from the
+     * one in {@code current}, or that {@code current} doesn't have.
+     */
+    static JSONObject changedProperties(JSONObject properties, JSONObject current) throws JSONException {
+        JSONObject changed = new JSONObject();
+        for (Iterator<String> keys = properties.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            Object value = properties.get(key);
+            if (!current.has(key) || !jsonEquals(value, current.get(key))) {
+                changed.put(key, value);
+            }
+        }
+        return changed;
+    }
+
+    /** Returns the entries of {@code properties} whose key {@code current} doesn't have. */
+    static JSONObject missingProperties(JSONObject properties, JSONObject current) throws JSONException {
+        JSONObject missing = new JSONObject();
+        for (Iterator<String> keys = properties.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            if (!current.has(key)) {
+                missing.put(key, properties.get(key));
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Deep value equality for JSON trees. Numbers compare by value, because
+     * values read back from persistence may not have the boxed type the
+     * codec produced.
+     */
+    static boolean jsonEquals(Object a, Object b) throws JSONException {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+                return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+            }
+            return ((Number) a).longValue() == ((Number) b).longValue();
+        }
+        if (a instanceof JSONObject && b instanceof JSONObject) {
+            JSONObject left = (JSONObject) a;
+            JSONObject right = (JSONObject) b;
+            if (left.length() != right.length()) {
+                return false;
+            }
+            for (Iterator<String> keys = left.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                if (!right.has(key) || !jsonEquals(left.get(key), right.get(key))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof JSONArray && b instanceof JSONArray) {
+            JSONArray left = (JSONArray) a;
+            JSONArray right = (JSONArray) b;
+            if (left.length() != right.length()) {
+                return false;
+            }
+            for (int i = 0; i < left.length(); i++) {
+                if (!jsonEquals(left.get(i), right.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a.equals(b);
+    }
 
 }
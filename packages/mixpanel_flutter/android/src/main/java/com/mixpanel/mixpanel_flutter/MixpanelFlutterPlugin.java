@@ -1,18 +1,24 @@
 package com.mixpanel.mixpanel_flutter;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import android.content.Context;
-
-import io.flutter.plugin.common.StandardMethodCodec;
+import android.os.Handler;
+import android.os.Looper;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.plugin.common.MethodCall;
@@ -31,14 +37,52 @@ import com.mixpanel.android.mpmetrics.VariantLookupPolicy;
  */
 public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
 
-    private MethodChannel channel;
-    private MixpanelAPI mixpanel;
-    private Context context;
-    private JSONObject mixpanelProperties;
+    // Handlers run on the lanes in HandlerLanes. mixpanel and
+    // mixpanelProperties are only written by barrier calls (initialize,
+    // detach), which run while every lane is idle, so a handler always sees
+    // a matching pair that can't change under it; volatile publishes them to
+    // the lane threads. The JSONObject is never mutated after initialize.
+    private volatile MethodChannel channel;
+    private volatile MixpanelAPI mixpanel;
+    private volatile Context context;
+    private volatile JSONObject mixpanelProperties;
+    // Token of the last initialize; kept after detach so events journaled
+    // from then on are replayed into the right project.
+    private volatile String token;
     private FlutterPluginBinding flutterPluginBinding;
+    // Null when not attached to an engine (e.g. in JVM tests); calls then run
+    // inline on the caller's thread.
+    private HandlerLanes lanes;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // FeatureFlagsConfig.deferLoading: initialize skips the flag prefetch and
+    // the first flag call (or Dart's post-first-frame trigger) starts it.
+    private volatile boolean flagLoadDeferred;
+    private final AtomicBoolean deferredFlagLoadStarted = new AtomicBoolean();
+    private final FlushCoalescer flushCoalescer = new FlushCoalescer();
+    private final FlagsContextDebouncer flagsContextDebouncer = new FlagsContextDebouncer(this::refreshFlagUpdates);
+    private final FlagUpdatesWatcher flagUpdatesWatcher = new FlagUpdatesWatcher(this::flagVariantToMap);
+    private final ScreenSessionTracker screenSessionTracker = new ScreenSessionTracker();
+    private final GroupHandleCache groupHandles = new GroupHandleCache();
 
     private static final Map<String, Object> EMPTY_HASHMAP = new HashMap<>();
 
+    // Upper bound on how long initialize waits for the persisted variant set.
+    // With nothing on disk the native lookup may wait on the network, which
+    // must not hold up init.
+    private static final long PERSISTED_VARIANTS_TIMEOUT_MILLIS = 250;
+
+    // Process-wide instances keyed by token. Every engine attached to the
+    // process (add-to-app secondary engines, background engines) shares the
+    // same MixpanelAPI for a given token, so identity, super properties and
+    // the upload queue stay consistent no matter which engine tracks.
+    private static final Map<String, MixpanelAPI> sharedInstances = new ConcurrentHashMap<>();
+    // The initialize options each shared instance was created with, in the
+    // order of SHARED_OPTION_NAMES, so a later engine asking for different
+    // ones can be told it didn't get them. Guarded by sharedInstances.
+    private static final Map<String, List<Object>> sharedInstanceOptions = new HashMap<>();
+    private static final String[] SHARED_OPTION_NAMES = {
+            "trackAutomaticEvents", "optOutTrackingDefault", "serverURL", "superProperties", "featureFlags"};
+
     public MixpanelFlutterPlugin() {
     }
 
@@ -51,12 +95,121 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         // Store references for lazy initialization to avoid ANR during plugin registration
         this.flutterPluginBinding = flutterPluginBinding;
         this.context = flutterPluginBinding.getApplicationContext();
+        EventJournal.install(context);
+        PayloadLimits.loadFromManifest(context);
+        MixpanelTrace.loadFromManifest(context);
+        BridgeMemoryCallbacks.register(context);
 
+        lanes = new HandlerLanes();
         initializeMethodChannel();
     }
 
     @Override
     public void onMethodCall(@NonNull MethodCall call, @NonNull Result result) {
+        HandlerLanes.Lane lane = laneFor(call.method);
+        HandlerLanes currentLanes = lanes;
+        if (lane == null || currentLanes == null) {
+            tracedMethodCall(call, result);
+            return;
+        }
+        currentLanes.execute(lane, () -> {
+            try {
+                tracedMethodCall(call, result);
+            } catch (RuntimeException e) {
+                // Off the platform thread nothing turns a crash into an error
+                // reply for us, and the Dart future would never complete.
+                result.error("error", e.getMessage(), android.util.Log.getStackTraceString(e));
+            }
+        });
+    }
+
+    /**
+     * Lane each method runs on, or null for calls handled right on the
+     * platform thread. Within a lane, calls keep the order Dart made them in.
+     */
+    private static HandlerLanes.Lane laneFor(String method) {
+        switch (method) {
+            case "initialize":
+            case "setServerURL":
+            case "optInTracking":
+            case "optOutTracking":
+            case "identify":
+            case "alias":
+            case "reset":
+                // Change what every other call sees
+                return HandlerLanes.Lane.ALL;
+            case "setLoggingEnabled":
+            case "setUseIpAddressForGeolocation":
+            case "hasOptedOutTracking":
+            case "setFlushBatchSize":
+            case "track":
+            case "trackBatch":
+            case "trackWithGroups":
+            // Group membership is a super property, so it orders with events
+            case "setGroup":
+            case "addGroup":
+            case "removeGroup":
+            case "registerSuperProperties":
+            case "registerSuperPropertiesOnce":
+            case "unregisterSuperProperty":
+            case "getSuperProperties":
+            case "clearSuperProperties":
+            case "timeEvent":
+            case "eventElapsedTime":
+            case "getDistinctId":
+            case "flush":
+            case "trackScreenView":
+            case "trackScreenLeave":
+            case "setMinimumScreenDuration":
+                return HandlerLanes.Lane.EVENTS;
+            case "set":
+            case "setOnce":
+            case "increment":
+            case "append":
+            case "union":
+            case "remove":
+            case "unset":
+            case "trackCharge":
+            case "clearCharges":
+            case "deleteUser":
+            case "deleteGroup":
+            case "groupSetProperties":
+            case "groupSetPropertyOnce":
+            case "groupUnsetProperty":
+            case "groupRemovePropertyValue":
+            case "groupUnionProperty":
+            case "groupBatch":
+                return HandlerLanes.Lane.PEOPLE;
+            case "areFlagsReady":
+            case "getVariant":
+            case "getVariantValue":
+            case "isEnabled":
+            case "updateFlagsContext":
+            case "loadFlags":
+            case "getAllVariants":
+            case "startDeferredFlagLoad":
+                return HandlerLanes.Lane.FLAGS;
+            default:
+                return null;
+        }
+    }
+
+    private void tracedMethodCall(MethodCall call, Result result) {
+        if (!MixpanelTrace.isEnabled()) {
+            dispatchMethodCall(call, result);
+            return;
+        }
+        // Covers the synchronous part of the handler; callbacks that reply
+        // later (flag lookups) show up as their own slices.
+        MixpanelTrace.begin("MixpanelFlutterPlugin#" + call.method);
+        try {
+            dispatchMethodCall(call, result);
+        } finally {
+            MixpanelTrace.end();
+        }
+    }
+
+    private void dispatchMethodCall(MethodCall call, Result result) {
         switch (call.method) {
             case "initialize":
                 handleInitialize(call, result);
@@ -81,6 +234,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
                 break;
             case "setFlushBatchSize":
                 handleSetFlushBatchSize(call, result);
+                break;
             case "identify":
                 handleIdentify(call, result);
                 break;
@@ -90,6 +244,9 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
             case "track":
                 handleTrack(call, result);
                 break;
+            case "trackBatch":
+                handleTrackBatch(call, result);
+                break;
             case "trackWithGroups":
                 handleTrackWithGroups(call, result);
                 break;
@@ -180,6 +337,9 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
             case "groupUnionProperty":
                 handleGroupUnionProperty(call, result);
                 break;
+            case "groupBatch":
+                handleGroupBatch(call, result);
+                break;
             case "areFlagsReady":
                 handleAreFlagsReady(call, result);
                 break;
@@ -201,18 +361,37 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
             case "getAllVariants":
                 handleGetAllVariants(call, result);
                 break;
+            case "startDeferredFlagLoad":
+                startDeferredFlagLoad();
+                result.success(null);
+                break;
             case "trackScreenView":
                 handleTrackScreenView(call, result);
                 break;
             case "trackScreenLeave":
                 handleTrackScreenLeave(call, result);
                 break;
+            case "setMinimumScreenDuration":
+                handleSetMinimumScreenDuration(call, result);
+                break;
             case "startEventBridge":
                 handleStartEventBridge(result);
                 break;
             case "stopEventBridge":
                 handleStopEventBridge(result);
                 break;
+            case "startFlagUpdates":
+                handleStartFlagUpdates(result);
+                break;
+            case "stopFlagUpdates":
+                handleStopFlagUpdates(result);
+                break;
+            case "getBridgeLog":
+                result.success(BridgeLog.instance.snapshot());
+                break;
+            case "setBridgeLogMuted":
+                handleSetBridgeLogMuted(call, result);
+                break;
             default:
                 result.notImplemented();
                 break;
@@ -227,14 +406,40 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
     }
 
     private void handleStopEventBridge(Result result) {
-        EventBridgeSubscriber.stop();
+        if (channel != null) {
+            EventBridgeSubscriber.stop(channel);
+        }
+        result.success(null);
+    }
+
+    private void handleStartFlagUpdates(Result result) {
+        if (channel != null) {
+            flagUpdatesWatcher.start(channel);
+        }
+        result.success(null);
+    }
+
+    private void handleStopFlagUpdates(Result result) {
+        flagUpdatesWatcher.stop();
+        result.success(null);
+    }
+
+    private void handleSetBridgeLogMuted(MethodCall call, Result result) {
+        Boolean muted = call.argument("muted");
+        BridgeLog.instance.setMuted(muted != null && muted);
         result.success(null);
     }
 
+    // Flag loads complete on SDK threads; the watcher lives on the platform
+    // thread.
+    private void refreshFlagUpdates() {
+        runOnPlatformThread(flagUpdatesWatcher::refresh);
+    }
+
     private void initializeMethodChannel() {
         if (channel == null && flutterPluginBinding != null) {
             channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "mixpanel_flutter",
-                    new StandardMethodCodec(new MixpanelMessageCodec()));
+                    MixpanelMethodCodec.instance);
             channel.setMethodCallHandler(this);
         }
     }
@@ -271,6 +476,8 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         JSONObject featureFlagsContext = null;
         VariantLookupPolicy variantLookupPolicy = null;
         Boolean prefetchFlags = null;
+        boolean includePersistedVariants = false;
+        boolean deferLoading = false;
         if (featureFlagsMap != null) {
             Object enabledValue = featureFlagsMap.get("enabled");
             if (enabledValue instanceof Boolean) {
@@ -283,7 +490,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
                     Map<String, Object> contextMap = (Map<String, Object>) contextValue;
                     featureFlagsContext = new JSONObject(contextMap);
                 } catch (Exception e) {
-                    android.util.Log.w("Mixpanel", "Failed to parse feature flags context: " + e.getMessage());
+                    BridgeLog.instance.w("flags.contextUnparsable", () -> "Failed to parse feature flags context: " + e.getMessage());
                 }
             }
             Object policyValue = featureFlagsMap.get("variantLookupPolicy");
@@ -291,11 +498,20 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
                 @SuppressWarnings("unchecked")
                 Map<String, Object> policyMap = (Map<String, Object>) policyValue;
                 variantLookupPolicy = parseVariantLookupPolicy(policyMap);
+                includePersistedVariants = Boolean.TRUE.equals(featureFlagsMap.get("includePersistedVariants"))
+                        && usesPersistence(policyMap);
             }
             Object prefetchValue = featureFlagsMap.get("prefetchFlags");
             if (prefetchValue instanceof Boolean) {
                 prefetchFlags = (Boolean) prefetchValue;
             }
+            deferLoading = Boolean.TRUE.equals(featureFlagsMap.get("deferLoading"));
+            if (deferLoading) {
+                // Nothing flag-related may touch the network or disk during
+                // startup, including reading back the persisted set.
+                prefetchFlags = false;
+                includePersistedVariants = false;
+            }
         }
 
         // Build MixpanelOptions with feature flags configuration
@@ -322,9 +538,85 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         }
 
         boolean trackAutoEvents = trackAutomaticEvents == null ? true : trackAutomaticEvents;
-        mixpanel = MixpanelAPI.getInstance(context, token, trackAutoEvents, optionsBuilder.build());
+        List<Object> requestedOptions = Arrays.asList(
+                trackAutoEvents, optOutTrackingDefault, serverURL, superPropertiesMap, featureFlagsMap);
+        mixpanel = obtainSharedInstance(token, trackAutoEvents, optionsBuilder.build(), requestedOptions);
+        flagLoadDeferred = deferLoading && featureFlagsEnabled != null && featureFlagsEnabled;
+        deferredFlagLoadStarted.set(false);
+        this.token = token;
+        MixpanelAPI flagsInstance = featureFlagsEnabled != null && featureFlagsEnabled ? mixpanel : null;
+        runOnPlatformThread(() -> flagUpdatesWatcher.watch(flagsInstance));
+
+        EventJournal journal = EventJournal.get();
+        if (journal != null) {
+            journal.replayInto(token, mixpanel, mixpanelProperties);
+        }
+
+        String instanceId = Integer.toString(mixpanel.hashCode());
+        if (featureFlagsEnabled != null && featureFlagsEnabled && includePersistedVariants) {
+            replyWithPersistedVariants(mixpanel, instanceId, result);
+        } else {
+            result.success(instanceId);
+        }
+    }
+
+    /**
+     * Completes initialize with the persisted variant set, so Dart can render
+     * flag-gated UI on the first frame without a getVariant round trip. The
+     * native SDK loads the set off the main thread; if it isn't available
+     * within {@link #PERSISTED_VARIANTS_TIMEOUT_MILLIS}, the reply goes out
+     * without it.
+     */
+    private void replyWithPersistedVariants(MixpanelAPI instance, String instanceId, Result result) {
+        AtomicBoolean replied = new AtomicBoolean();
+        Runnable timeout = () -> {
+            if (replied.compareAndSet(false, true)) {
+                result.success(initializeReply(instanceId, null));
+            }
+        };
+        mainHandler.postDelayed(timeout, PERSISTED_VARIANTS_TIMEOUT_MILLIS);
+        instance.getFlags().getAllVariants(variants -> {
+            Map<String, Object> persisted = persistedVariantsToMap(variants);
+            mainHandler.post(() -> {
+                if (replied.compareAndSet(false, true)) {
+                    mainHandler.removeCallbacks(timeout);
+                    result.success(initializeReply(instanceId, persisted));
+                }
+            });
+        });
+    }
 
-        result.success(Integer.toString(mixpanel.hashCode()));
+    private static Map<String, Object> initializeReply(String instanceId, Map<String, Object> persistedVariants) {
+        Map<String, Object> reply = new HashMap<>();
+        reply.put("instanceId", instanceId);
+        reply.put("persistedVariants", persistedVariants);
+        return reply;
+    }
+
+    /**
+     * Keeps only the variants served from persistence.
+     *
+     * @return {@code {"persistedAtMillis": ..., "variants": {...}}}, or null
+     * when nothing came from disk
+     */
+    private Map<String, Object> persistedVariantsToMap(Map<String, MixpanelFlagVariant> variants) {
+        Map<String, Object> out = new HashMap<>();
+        long persistedAtMillis = 0;
+        for (Map.Entry<String, MixpanelFlagVariant> entry : variants.entrySet()) {
+            MixpanelFlagVariant.Source source = entry.getValue().source;
+            if (source instanceof MixpanelFlagVariant.Source.Persistence) {
+                persistedAtMillis = Math.max(persistedAtMillis,
+                        ((MixpanelFlagVariant.Source.Persistence) source).persistedAtMillis);
+                out.put(entry.getKey(), flagVariantToMap(entry.getValue()));
+            }
+        }
+        if (out.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> persisted = new HashMap<>();
+        persisted.put("persistedAtMillis", persistedAtMillis);
+        persisted.put("variants", out);
+        return persisted;
     }
 
     private void handleSetServerURL(MethodCall call, Result result) {
@@ -360,7 +652,11 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
     }
 
     private void handleSetFlushBatchSize(MethodCall call, Result result) {
-        int flushBatchSize = call.argument("flushBatchSize");
+        Integer flushBatchSize = call.argument("flushBatchSize");
+        if (flushBatchSize == null) {
+            result.error("MixpanelFlutterException", "flushBatchSize is required", null);
+            return;
+        }
         mixpanel.setFlushBatchSize(flushBatchSize);
         result.success(null);
     }
@@ -379,17 +675,64 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
     }
 
     private void handleTrack(MethodCall call, Result result) {
-        String eventName = call.argument("eventName");
-        Map<String, Object> mapProperties = call.<HashMap<String, Object>>argument("properties");
+        TrackMessage message = (TrackMessage) call.arguments;
+        String eventName = message.eventName;
+        Map<String, Object> mapProperties = message.properties;
         JSONObject properties;
         try {
             properties = new JSONObject(mapProperties == null ? EMPTY_HASHMAP : mapProperties);
             properties = MixpanelFlutterHelper.getMergedProperties(properties, mixpanelProperties);
+            TrackMessage.putClientTiming(properties, message.time, message.sequence);
         } catch (JSONException e) {
             result.error("MixpanelFlutterException", e.getLocalizedMessage(), null);
             return;
         }
-        mixpanel.track(eventName, properties);
+        trackOrJournal(eventName, properties);
+        result.success(null);
+    }
+
+    private void trackOrJournal(String eventName, JSONObject properties) {
+        if (mixpanel != null) {
+            mixpanel.track(eventName, properties);
+            return;
+        }
+        // No instance yet (or any more): keep the event for the next
+        // initialize instead of dropping it.
+        EventJournal journal = EventJournal.get();
+        if (journal == null || !journal.append(token, eventName, properties)) {
+            BridgeLog.instance.w("track.beforeInit", () -> "track called before Mixpanel was initialized, dropping '" + eventName + "'");
+        }
+    }
+
+    private void handleTrackBatch(MethodCall call, Result result) {
+        List<Object> events = call.argument("events");
+        if (events == null) {
+            result.success(null);
+            return;
+        }
+        // The whole batch arrives in one channel message and is drained here
+        // in list order, on the events lane like every track call, so batched
+        // events interleave with identify/register calls exactly like
+        // individual track calls would.
+        for (Object entry : events) {
+            List<?> fields = (List<?>) entry;
+            String eventName = (String) fields.get(0);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> mapProperties = (Map<String, Object>) fields.get(1);
+            JSONObject properties;
+            try {
+                properties = new JSONObject(mapProperties == null ? EMPTY_HASHMAP : mapProperties);
+                properties = MixpanelFlutterHelper.getMergedProperties(properties, mixpanelProperties);
+                if (fields.size() > 3) {
+                    TrackMessage.putClientTiming(properties, (Date) fields.get(2), (Number) fields.get(3));
+                }
+            } catch (JSONException e) {
+                // One bad event shouldn't drop the rest of the batch.
+                BridgeLog.instance.w("trackBatch.skipped", () -> "trackBatch skipped '" + eventName + "': " + e.getMessage());
+                continue;
+            }
+            trackOrJournal(eventName, properties);
+        }
         result.success(null);
     }
 
@@ -404,9 +747,11 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
             result.error("MixpanelFlutterException", e.getLocalizedMessage(), null);
             return;
         }
-        if (mixpanel.getAutocapture() != null) {
-            mixpanel.getAutocapture().trackScreenView(screenName, properties);
-        }
+        // The session tracker lives on the platform thread, like the flush
+        // coalescer.
+        MixpanelAPI instance = mixpanel;
+        JSONObject viewProperties = properties;
+        runOnPlatformThread(() -> screenSessionTracker.onView(instance, screenName, viewProperties));
         result.success(null);
     }
 
@@ -421,9 +766,17 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
             result.error("MixpanelFlutterException", e.getLocalizedMessage(), null);
             return;
         }
-        if (mixpanel.getAutocapture() != null) {
-            mixpanel.getAutocapture().trackScreenLeave(screenName, properties);
-        }
+        MixpanelAPI instance = mixpanel;
+        JSONObject leaveProperties = properties;
+        runOnPlatformThread(() -> screenSessionTracker.onLeave(instance, screenName, leaveProperties));
+        result.success(null);
+    }
+
+    private void handleSetMinimumScreenDuration(MethodCall call, Result result) {
+        // Null turns session tracking off again.
+        Number minimumMillis = call.argument("minimumMillis");
+        long millis = minimumMillis == null ? -1 : Math.max(0, minimumMillis.longValue());
+        runOnPlatformThread(() -> screenSessionTracker.setMinimumMillis(millis));
         result.success(null);
     }
 
@@ -437,7 +790,17 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
             result.error("MixpanelFlutterException", e.getLocalizedMessage(), null);
             return;
         }
-        mixpanel.registerSuperProperties(properties);
+        // Apps tend to re-register the same context on every screen; only
+        // write what changed so unchanged calls don't rewrite persisted state.
+        try {
+            properties = MixpanelFlutterHelper.changedProperties(properties, mixpanel.getSuperProperties());
+        } catch (JSONException e) {
+            result.error("MixpanelFlutterException", e.getLocalizedMessage(), null);
+            return;
+        }
+        if (properties.length() > 0) {
+            mixpanel.registerSuperProperties(properties);
+        }
         result.success(null);
     }
 
@@ -451,7 +814,15 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
             result.error("MixpanelFlutterException", e.getLocalizedMessage(), null);
             return;
         }
-        mixpanel.registerSuperPropertiesOnce(properties);
+        try {
+            properties = MixpanelFlutterHelper.missingProperties(properties, mixpanel.getSuperProperties());
+        } catch (JSONException e) {
+            result.error("MixpanelFlutterException", e.getLocalizedMessage(), null);
+            return;
+        }
+        if (properties.length() > 0) {
+            mixpanel.registerSuperPropertiesOnce(properties);
+        }
         result.success(null);
     }
 
@@ -503,8 +874,23 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
     }
 
     private void handleFlush(MethodCall call, Result result) {
-        mixpanel.flush();
-        result.success(null);
+        // Runs after every track queued before it on the events lane; the
+        // coalescer itself lives on the platform thread.
+        MixpanelAPI instance = mixpanel;
+        if (instance == null) {
+            BridgeLog.instance.w("flush.beforeInit", () -> "flush called before Mixpanel was initialized");
+            result.error("MIXPANEL_UNINITIALIZED", "flush called before Mixpanel was initialized", null);
+            return;
+        }
+        runOnPlatformThread(() -> flushCoalescer.requestFlush(instance, result));
+    }
+
+    private void runOnPlatformThread(Runnable task) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            task.run();
+        } else {
+            mainHandler.post(task);
+        }
     }
 
     private void handleSet(MethodCall call, Result result) {
@@ -618,7 +1004,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
     private void handleDeleteGroup(MethodCall call, Result result) {
         String groupKey = call.argument("groupKey");
         Object groupID = call.argument("groupID");
-        mixpanel.getGroup(groupKey, groupID).deleteGroup();
+        groupHandles.get(mixpanel, groupKey, groupID).deleteGroup();
         result.success(null);
     }
 
@@ -627,7 +1013,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         Object groupID = call.argument("groupID");
         Map<String, Object> mapProperties = call.<HashMap<String, Object>>argument("properties");
         JSONObject properties = new JSONObject(mapProperties == null ? EMPTY_HASHMAP : mapProperties);
-        mixpanel.getGroup(groupKey, groupID).set(properties);
+        groupHandles.get(mixpanel, groupKey, groupID).set(properties);
         result.success(null);
     }
 
@@ -636,7 +1022,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         Object groupID = call.argument("groupID");
         Map<String, Object> mapProperties = call.<HashMap<String, Object>>argument("properties");
         JSONObject properties = new JSONObject(mapProperties == null ? EMPTY_HASHMAP : mapProperties);
-        mixpanel.getGroup(groupKey, groupID).setOnce(properties);
+        groupHandles.get(mixpanel, groupKey, groupID).setOnce(properties);
         result.success(null);
     }
 
@@ -644,7 +1030,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         String groupKey = call.argument("groupKey");
         Object groupID = call.argument("groupID");
         String propertyName = call.argument("propertyName");
-        mixpanel.getGroup(groupKey, groupID).unset(propertyName);
+        groupHandles.get(mixpanel, groupKey, groupID).unset(propertyName);
         result.success(null);
     }
 
@@ -653,7 +1039,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         Object groupID = call.argument("groupID");
         String name = call.argument("name");
         Object value = call.argument("value");
-        mixpanel.getGroup(groupKey, groupID).remove(name, value);
+        groupHandles.get(mixpanel, groupKey, groupID).remove(name, value);
         result.success(null);
     }
 
@@ -662,35 +1048,111 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         Object groupID = call.argument("groupID");
         String name = call.argument("name");
         ArrayList<Object> value = call.argument("value");
-        mixpanel.getGroup(groupKey, groupID).union(name, new JSONArray(value));
+        groupHandles.get(mixpanel, groupKey, groupID).union(name, new JSONArray(value));
         result.success(null);
     }
 
+    private void handleGroupBatch(MethodCall call, Result result) {
+        List<Object> operations = call.argument("operations");
+        MixpanelAPI instance = mixpanel;
+        if (operations == null || instance == null) {
+            if (operations != null) {
+                BridgeLog.instance.w("groupBatch.beforeInit", () -> "groupBatch called before Mixpanel was initialized, dropping " + operations.size() + " operations");
+            }
+            result.success(null);
+            return;
+        }
+        // Applied in list order on the people lane, exactly as the
+        // individual group calls would be.
+        for (Object entry : operations) {
+            List<?> fields = (List<?>) entry;
+            String groupKey = (String) fields.get(0);
+            String op = (String) fields.get(2);
+            try {
+                applyGroupOperation(groupHandles.get(instance, groupKey, fields.get(1)), op, fields);
+            } catch (JSONException | RuntimeException e) {
+                // One bad operation shouldn't drop the rest of the batch.
+                BridgeLog.instance.w("groupBatch.skipped", () -> "groupBatch skipped '" + op + "' on '" + groupKey + "': " + e.getMessage());
+            }
+        }
+        result.success(null);
+    }
+
+    /** Fields are [groupKey, groupID, op, name, value]. */
+    @SuppressWarnings("unchecked")
+    private static void applyGroupOperation(MixpanelAPI.Group group, String op, List<?> fields) throws JSONException {
+        String name = (String) fields.get(3);
+        Object value = fields.get(4);
+        switch (op) {
+            case "set":
+                group.set(new JSONObject(value == null ? EMPTY_HASHMAP : (Map<String, Object>) value));
+                break;
+            case "setOnce":
+                group.setOnce(new JSONObject(value == null ? EMPTY_HASHMAP : (Map<String, Object>) value));
+                break;
+            case "unset":
+                group.unset(name);
+                break;
+            case "remove":
+                group.remove(name, value);
+                break;
+            case "union":
+                group.union(name, new JSONArray((List<Object>) value));
+                break;
+            case "delete":
+                group.deleteGroup();
+                break;
+            default:
+                throw new JSONException("unknown operation");
+        }
+    }
+
     // Feature Flags handlers
 
     private void handleAreFlagsReady(MethodCall call, Result result) {
         if (mixpanel == null) {
-            android.util.Log.w("Mixpanel", "areFlagsReady called before Mixpanel was initialized, returning false");
+            BridgeLog.instance.w("areFlagsReady.beforeInit", () -> "areFlagsReady called before Mixpanel was initialized, returning false");
             result.success(false);
             return;
         }
+        startDeferredFlagLoad();
         result.success(mixpanel.getFlags().areFlagsReady());
     }
 
+    /**
+     * Starts the flag load that deferred loading held back at initialize;
+     * later calls do nothing. Runs on the flags lane, so the native SDK's
+     * persistence read and fetch start from there rather than from startup.
+     */
+    private void startDeferredFlagLoad() {
+        MixpanelAPI instance = mixpanel;
+        if (!flagLoadDeferred || instance == null || !deferredFlagLoadStarted.compareAndSet(false, true)) {
+            return;
+        }
+        instance.getFlags().loadFlags(success -> {
+            if (success) {
+                refreshFlagUpdates();
+            } else {
+                BridgeLog.instance.w("flags.deferredLoadFailed", () -> "Deferred feature flag load failed");
+            }
+        });
+    }
+
     private void handleGetVariant(MethodCall call, Result result) {
         String flagName = call.argument("flagName");
         Map<String, Object> fallbackMap = call.<HashMap<String, Object>>argument("fallback");
         com.mixpanel.android.mpmetrics.MixpanelFlagVariant fallback = mapToFlagVariant(fallbackMap);
         if (mixpanel == null) {
-            android.util.Log.w("Mixpanel", "getVariant called before Mixpanel was initialized, returning fallback");
+            BridgeLog.instance.w("getVariant.beforeInit", () -> "getVariant called before Mixpanel was initialized, returning fallback");
             result.success(flagVariantToMap(fallback));
             return;
         }
         if (flagName == null || flagName.isEmpty()) {
-            android.util.Log.w("Mixpanel", "getVariant called with empty flagName, returning fallback");
+            BridgeLog.instance.w("getVariant.emptyName", () -> "getVariant called with empty flagName, returning fallback");
             result.success(flagVariantToMap(fallback));
             return;
         }
+        startDeferredFlagLoad();
         mixpanel.getFlags().getVariant(flagName, fallback, variant -> {
             result.success(flagVariantToMap(variant));
         });
@@ -700,15 +1162,16 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         String flagName = call.argument("flagName");
         Object fallbackValue = call.argument("fallbackValue");
         if (mixpanel == null) {
-            android.util.Log.w("Mixpanel", "getVariantValue called before Mixpanel was initialized, returning fallback");
+            BridgeLog.instance.w("getVariantValue.beforeInit", () -> "getVariantValue called before Mixpanel was initialized, returning fallback");
             result.success(fallbackValue);
             return;
         }
         if (flagName == null || flagName.isEmpty()) {
-            android.util.Log.w("Mixpanel", "getVariantValue called with empty flagName, returning fallback");
+            BridgeLog.instance.w("getVariantValue.emptyName", () -> "getVariantValue called with empty flagName, returning fallback");
             result.success(fallbackValue);
             return;
         }
+        startDeferredFlagLoad();
         mixpanel.getFlags().getVariant(flagName, new com.mixpanel.android.mpmetrics.MixpanelFlagVariant(flagName, fallbackValue), variant -> {
             result.success(variant.value);
         });
@@ -719,22 +1182,23 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         Boolean fallbackValue = call.argument("fallbackValue");
         boolean safeFallback = fallbackValue != null ? fallbackValue : false;
         if (mixpanel == null) {
-            android.util.Log.w("Mixpanel", "isEnabled called before Mixpanel was initialized, returning fallback");
+            BridgeLog.instance.w("isEnabled.beforeInit", () -> "isEnabled called before Mixpanel was initialized, returning fallback");
             result.success(safeFallback);
             return;
         }
         if (flagName == null || flagName.isEmpty()) {
-            android.util.Log.w("Mixpanel", "isEnabled called with empty flagName, returning fallback");
+            BridgeLog.instance.w("isEnabled.emptyName", () -> "isEnabled called with empty flagName, returning fallback");
             result.success(safeFallback);
             return;
         }
+        startDeferredFlagLoad();
         mixpanel.getFlags().getVariant(flagName, new com.mixpanel.android.mpmetrics.MixpanelFlagVariant(flagName, safeFallback), variant -> {
             Object value = variant.value;
             if (value instanceof Boolean) {
                 result.success(value);
             } else {
                 if (value != null) {
-                    android.util.Log.w("Mixpanel", "isEnabled flag '" + flagName + "' has non-boolean value of type " + value.getClass().getSimpleName() + ", returning fallback");
+                    BridgeLog.instance.w("isEnabled.nonBoolean", () -> "isEnabled flag '" + flagName + "' has non-boolean value of type " + value.getClass().getSimpleName() + ", returning fallback");
                 }
                 result.success(safeFallback);
             }
@@ -743,7 +1207,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
 
     private void handleUpdateFlagsContext(MethodCall call, Result result) {
         if (mixpanel == null) {
-            android.util.Log.w("Mixpanel", "updateFlagsContext called before Mixpanel was initialized");
+            BridgeLog.instance.w("updateFlagsContext.beforeInit", () -> "updateFlagsContext called before Mixpanel was initialized");
             result.success(null);
             return;
         }
@@ -751,19 +1215,20 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         if (contextMap == null) {
             contextMap = new HashMap<>();
         }
-        mixpanel.getFlags().setContext(contextMap, success -> {
-            result.success(null);
-        });
+        MixpanelAPI instance = mixpanel;
+        Map<String, Object> context = contextMap;
+        runOnPlatformThread(() -> flagsContextDebouncer.requestUpdate(instance, context, result));
     }
 
     private void handleLoadFlags(MethodCall call, Result result) {
         if (mixpanel == null) {
-            android.util.Log.w("Mixpanel", "loadFlags called before Mixpanel was initialized");
+            BridgeLog.instance.w("loadFlags.beforeInit", () -> "loadFlags called before Mixpanel was initialized");
             result.error("LOAD_FLAGS_FAILED", "loadFlags called before Mixpanel was initialized", null);
             return;
         }
         mixpanel.getFlags().loadFlags(success -> {
             if (success) {
+                refreshFlagUpdates();
                 result.success(null);
             } else {
                 result.error("LOAD_FLAGS_FAILED", "Failed to load feature flags", null);
@@ -773,10 +1238,11 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
 
     private void handleGetAllVariants(MethodCall call, Result result) {
         if (mixpanel == null) {
-            android.util.Log.w("Mixpanel", "getAllVariants called before Mixpanel was initialized");
+            BridgeLog.instance.w("getAllVariants.beforeInit", () -> "getAllVariants called before Mixpanel was initialized");
             result.error("MIXPANEL_UNINITIALIZED", "getAllVariants called before Mixpanel was initialized", null);
             return;
         }
+        startDeferredFlagLoad();
         mixpanel.getFlags().getAllVariants(variants -> {
             Map<String, Map<String, Object>> out = new HashMap<>();
             for (Map.Entry<String, com.mixpanel.android.mpmetrics.MixpanelFlagVariant> entry : variants.entrySet()) {
@@ -846,6 +1312,11 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         }
     }
 
+    private static boolean usesPersistence(Map<String, Object> policyMap) {
+        Object kind = policyMap.get("policy");
+        return "persistenceUntilNetworkSuccess".equals(kind) || "networkFirst".equals(kind);
+    }
+
     private VariantLookupPolicy parseVariantLookupPolicy(Map<String, Object> policyMap) {
         Object kind = policyMap.get("policy");
         if (!(kind instanceof String)) {
@@ -859,7 +1330,7 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
             case "networkFirst":
                 return VariantLookupPolicy.networkFirst(readPersistenceTtlMillis(policyMap));
             default:
-                android.util.Log.w("Mixpanel", "Unknown variantLookupPolicy '" + kind + "', falling back to networkOnly");
+                BridgeLog.instance.w("flags.unknownLookupPolicy", () -> "Unknown variantLookupPolicy '" + kind + "', falling back to networkOnly");
                 return VariantLookupPolicy.networkOnly();
         }
     }
@@ -875,14 +1346,91 @@ public class MixpanelFlutterPlugin implements FlutterPlugin, MethodCallHandler {
         return java.util.concurrent.TimeUnit.HOURS.toMillis(24);
     }
 
+    private MixpanelAPI obtainSharedInstance(String token, boolean trackAutoEvents, MixpanelOptions options,
+                                             List<Object> requestedOptions) {
+        // Map.computeIfAbsent needs API 24; minSdk is 21.
+        synchronized (sharedInstances) {
+            MixpanelAPI instance = sharedInstances.get(token);
+            if (instance == null) {
+                instance = MixpanelAPI.getInstance(context, token, trackAutoEvents, options);
+                sharedInstances.put(token, instance);
+                sharedInstanceOptions.put(token, requestedOptions);
+                return instance;
+            }
+            List<Object> createdWith = sharedInstanceOptions.get(token);
+            if (createdWith == null) {
+                // Registered up front; the first initialize sets the options.
+                sharedInstanceOptions.put(token, requestedOptions);
+            } else if (!createdWith.equals(requestedOptions)) {
+                // The instance is shared by design; its options can't change
+                // under the engine that created it.
+                BridgeLog.instance.w("initialize.sharedOptionsIgnored", () ->
+                        "initialize reused the instance another engine created for this token; ignoring its different "
+                                + differingOptions(createdWith, requestedOptions));
+            }
+            return instance;
+        }
+    }
+
+    private static String differingOptions(List<Object> createdWith, List<Object> requested) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < SHARED_OPTION_NAMES.length; i++) {
+            Object created = createdWith.get(i);
+            Object wanted = requested.get(i);
+            if (created == null ? wanted != null : !created.equals(wanted)) {
+                if (names.length() > 0) {
+                    names.append(", ");
+                }
+                names.append(SHARED_OPTION_NAMES[i]);
+            }
+        }
+        return names.toString();
+    }
+
+    /**
+     * Pre-registers {@code instance} for {@code token}, so a later
+     * `initialize` for that token adopts it instead of creating one.
+     */
+    @VisibleForTesting
+    static void registerSharedInstance(String token, MixpanelAPI instance) {
+        sharedInstances.put(token, instance);
+    }
+
+    /**
+     * Returns the instance initialized for {@code token} by any attached
+     * engine, or null if no engine has initialized it yet.
+     */
+    static MixpanelAPI getSharedInstance(String token) {
+        return token == null ? null : sharedInstances.get(token);
+    }
+
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
-        EventBridgeSubscriber.stop();
+        flushCoalescer.drain();
+        flagsContextDebouncer.drain();
+        flagUpdatesWatcher.stop();
+        screenSessionTracker.drain();
+        if (lanes != null) {
+            // Calls already queued still run against the instance; it is
+            // cleared once they are done.
+            lanes.shutdown(this::clearInstance);
+            lanes = null;
+        } else {
+            clearInstance();
+        }
         if (channel != null) {
+            // Only detach this engine's channel; other engines may still be
+            // listening to the event bridge. The shared MixpanelAPI stays
+            // registered for them as well.
+            EventBridgeSubscriber.stop(channel);
             channel.setMethodCallHandler(null);
             channel = null;
         }
         flutterPluginBinding = null;
+    }
+
+    private void clearInstance() {
+        groupHandles.clear();
         context = null;
         mixpanel = null;
         mixpanelProperties = null;
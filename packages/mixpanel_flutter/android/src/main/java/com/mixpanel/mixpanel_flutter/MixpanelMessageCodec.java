@@ -7,13 +7,48 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class MixpanelMessageCodec extends StandardMessageCodec {
     static final MixpanelMessageCodec instance = new MixpanelMessageCodec();
     static final Charset UTF8 = Charset.forName("UTF8");
     static final int DATE_TIME = 128;
     static final int URI = 129;
+    static final int TRACK_MESSAGE = 130;
+
+    // StandardMessageCodec's own type tags, needed to skip values unread.
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte BIGINT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte STRING = 7;
+    private static final byte BYTE_ARRAY = 8;
+    private static final byte INT_ARRAY = 9;
+    private static final byte LONG_ARRAY = 10;
+    private static final byte DOUBLE_ARRAY = 11;
+    private static final byte LIST = 12;
+    private static final byte MAP = 13;
+    private static final byte FLOAT_ARRAY = 14;
+
+    // Rough decoded cost of a scalar against the event budget.
+    private static final int SCALAR_BYTES = 8;
+
+    // Returned for a value that didn't fit the event budget; its key or
+    // list slot is left out.
+    private static final Object DROPPED = new Object();
+
+    private static final AtomicLong trimmedValues = new AtomicLong();
+
+    // Set only while the properties of a track message are being read.
+    private final ThreadLocal<Budget> activeBudget = new ThreadLocal<>();
 
     @Override
     protected void writeValue(ByteArrayOutputStream stream, Object value) {
@@ -23,6 +58,9 @@ public class MixpanelMessageCodec extends StandardMessageCodec {
         } else if (value instanceof java.net.URI) {
             stream.write(URI);
             writeBytes(stream, ((java.net.URI) value).toString().getBytes(UTF8));
+        } else if (value instanceof TrackMessage) {
+            stream.write(TRACK_MESSAGE);
+            writeValue(stream, ((TrackMessage) value).toList());
         } else {
             super.writeValue(stream, value);
         }
@@ -30,18 +68,245 @@ public class MixpanelMessageCodec extends StandardMessageCodec {
 
     @Override
     protected Object readValueOfType(byte type, ByteBuffer buffer) {
+        Budget budget = activeBudget.get();
+        if (budget != null) {
+            return readBudgeted(type, buffer, budget);
+        }
         switch (type) {
             case (byte) DATE_TIME:
                 return new Date(buffer.getLong());
+            case (byte) TRACK_MESSAGE:
+                return readTrackMessage(buffer);
             case (byte) URI:
-                final byte[] urlBytes = readBytes(buffer);
-                final String url = new String(urlBytes, UTF8);
-                try {
-                    return new URI(url);
-                } catch (URISyntaxException e) {
+                return readUri(buffer);
+            default:
+                return super.readValueOfType(type, buffer);
+        }
+    }
+
+    private Object readUri(ByteBuffer buffer) {
+        final byte[] urlBytes = readBytes(buffer);
+        final String url = new String(urlBytes, UTF8);
+        try {
+            return new URI(url);
+        } catch (URISyntaxException e) {
+            return super.readValueOfType((byte) URI, buffer);
+        }
+    }
+
+    /** Total number of property values truncated or dropped since start. */
+    static long trimmedValueCount() {
+        return trimmedValues.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private TrackMessage readTrackMessage(ByteBuffer buffer) {
+        // Dart writes the fields as a list: [eventName, properties], followed
+        // by [time, sequence] when the event was timed on the client.
+        if (buffer.get() != LIST) {
+            throw new IllegalArgumentException("Message corrupted");
+        }
+        int fields = readSize(buffer);
+        String eventName = (String) readValue(buffer);
+        Budget budget = new Budget(PayloadLimits.current());
+        activeBudget.set(budget);
+        Map<String, Object> properties;
+        try {
+            properties = (Map<String, Object>) readValue(buffer);
+        } finally {
+            activeBudget.remove();
+        }
+        if (budget.trimmed > 0 || budget.dropped > 0) {
+            long total = trimmedValues.addAndGet(budget.trimmed + budget.dropped);
+            MixpanelTrace.counter("Mixpanel.trimmedValues", total);
+        }
+        if (budget.trimmed > 0) {
+            BridgeLog.instance.w("track.trimmedValues", () -> "Trimmed " + budget.trimmed + " oversize property values from '" + eventName + "'");
+        }
+        if (budget.dropped > 0) {
+            BridgeLog.instance.w("track.droppedValues", () -> "Dropped " + budget.dropped + " property values from '" + eventName
+                    + "' past the " + budget.limits.maxEventBytes + " byte event limit");
+        }
+        if (fields < 4) {
+            return new TrackMessage(eventName, properties);
+        }
+        Date time = (Date) readValue(buffer);
+        Number sequence = (Number) readValue(buffer);
+        for (int i = 4; i < fields; i++) {
+            skipValue(buffer);
+        }
+        return new TrackMessage(eventName, properties, time,
+                sequence == null ? null : sequence.longValue());
+    }
+
+    private Object readBudgeted(byte type, ByteBuffer buffer, Budget budget) {
+        switch (type) {
+            case STRING: {
+                int size = readSize(buffer);
+                int keep = Math.min(size, budget.limits.maxValueBytes);
+                if (keep < size) {
+                    keep = utf8Boundary(buffer, keep);
+                }
+                if (keep > budget.remainingBytes) {
+                    // Past the event limit the value is left out entirely
+                    // rather than kept as an empty or cut-off stub.
+                    skipBytes(buffer, size);
+                    budget.dropped++;
+                    return DROPPED;
+                }
+                if (keep < size) {
+                    budget.trimmed++;
+                }
+                byte[] bytes = new byte[keep];
+                buffer.get(bytes);
+                buffer.position(buffer.position() + size - keep);
+                budget.remainingBytes -= keep;
+                return new String(bytes, UTF8);
+            }
+            case LIST: {
+                int size = readSize(buffer);
+                List<Object> list = new ArrayList<>(Math.min(size, budget.limits.maxCollectionLength));
+                for (int i = 0; i < size; i++) {
+                    if (i >= budget.limits.maxCollectionLength) {
+                        skipValue(buffer);
+                        budget.trimmed++;
+                    } else if (budget.remainingBytes <= 0) {
+                        skipValue(buffer);
+                        budget.dropped++;
+                    } else {
+                        Object value = readValue(buffer);
+                        if (value != DROPPED) {
+                            list.add(value);
+                        }
+                    }
                 }
+                return list;
+            }
+            case MAP: {
+                int size = readSize(buffer);
+                Map<Object, Object> map = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    if (i >= budget.limits.maxCollectionLength) {
+                        skipValue(buffer);
+                        skipValue(buffer);
+                        budget.trimmed++;
+                    } else if (budget.remainingBytes <= 0) {
+                        skipValue(buffer);
+                        skipValue(buffer);
+                        budget.dropped++;
+                    } else {
+                        // Keys are never trimmed, only charged for.
+                        Object key = super.readValueOfType(buffer.get(), buffer);
+                        budget.remainingBytes -= SCALAR_BYTES;
+                        Object value = readValue(buffer);
+                        if (value != DROPPED) {
+                            map.put(key, value);
+                        }
+                    }
+                }
+                return map;
+            }
+            case (byte) DATE_TIME:
+                budget.remainingBytes -= SCALAR_BYTES;
+                return new Date(buffer.getLong());
+            case (byte) URI: {
+                // Kept whole: a truncated URI is worse than a dropped one.
+                int start = buffer.position();
+                Object uri = readUri(buffer);
+                budget.remainingBytes -= buffer.position() - start;
+                return uri;
+            }
             default:
+                budget.remainingBytes -= SCALAR_BYTES;
                 return super.readValueOfType(type, buffer);
         }
     }
+
+    /** Advances past the next value without materializing it. */
+    private static void skipValue(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case NULL:
+            case TRUE:
+            case FALSE:
+                break;
+            case INT:
+                buffer.position(buffer.position() + 4);
+                break;
+            case LONG:
+            case (byte) DATE_TIME:
+                buffer.position(buffer.position() + 8);
+                break;
+            case DOUBLE:
+                readAlignment(buffer, 8);
+                buffer.position(buffer.position() + 8);
+                break;
+            case BIGINT:
+            case STRING:
+            case BYTE_ARRAY:
+            case (byte) URI:
+                skipBytes(buffer, readSize(buffer));
+                break;
+            case INT_ARRAY:
+            case FLOAT_ARRAY: {
+                int length = readSize(buffer);
+                readAlignment(buffer, 4);
+                skipBytes(buffer, length * 4);
+                break;
+            }
+            case LONG_ARRAY:
+            case DOUBLE_ARRAY: {
+                int length = readSize(buffer);
+                readAlignment(buffer, 8);
+                skipBytes(buffer, length * 8);
+                break;
+            }
+            case LIST: {
+                int length = readSize(buffer);
+                for (int i = 0; i < length; i++) {
+                    skipValue(buffer);
+                }
+                break;
+            }
+            case MAP: {
+                int length = readSize(buffer);
+                for (int i = 0; i < length * 2; i++) {
+                    skipValue(buffer);
+                }
+                break;
+            }
+            case (byte) TRACK_MESSAGE:
+                skipValue(buffer);
+                break;
+            default:
+                throw new IllegalArgumentException("Message corrupted");
+        }
+    }
+
+    private static void skipBytes(ByteBuffer buffer, int count) {
+        buffer.position(buffer.position() + count);
+    }
+
+    /** Largest length <= {@code length} that doesn't split a UTF-8 sequence. */
+    private static int utf8Boundary(ByteBuffer buffer, int length) {
+        int start = buffer.position();
+        while (length > 0 && (buffer.get(start + length) & 0xC0) == 0x80) {
+            length--;
+        }
+        return length;
+    }
+
+    private static final class Budget {
+        final PayloadLimits limits;
+        int remainingBytes;
+        // Values cut to maxValueBytes or past maxCollectionLength.
+        int trimmed;
+        // Values left out because the event ran past maxEventBytes.
+        int dropped;
+
+        Budget(PayloadLimits limits) {
+            this.limits = limits;
+            this.remainingBytes = limits.maxEventBytes;
+        }
+    }
 }
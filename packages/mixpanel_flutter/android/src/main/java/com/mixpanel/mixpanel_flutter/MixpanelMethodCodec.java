@@ -0,0 +1,87 @@
+package com.mixpanel.mixpanel_flutter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.StandardMethodCodec;
+
+/**
+ * {@link StandardMethodCodec} over {@link MixpanelMessageCodec} that adds
+ * trace sections and payload-size counters around every encode and decode
+ * on the `mixpanel_flutter` channel.
+ *
+ * Method calls and success replies are encoded through the calling thread's
+ * {@link EncodeBufferPool} instead of a fresh stream and buffer per message.
+ * Error replies are rare and keep the stock encoding.
+ */
+class MixpanelMethodCodec extends StandardMethodCodec {
+    static final MixpanelMethodCodec instance = new MixpanelMethodCodec();
+
+    MixpanelMethodCodec() {
+        super(MixpanelMessageCodec.instance);
+    }
+
+    @Override
+    public MethodCall decodeMethodCall(ByteBuffer methodCall) {
+        if (!MixpanelTrace.isEnabled()) {
+            return super.decodeMethodCall(methodCall);
+        }
+        MixpanelTrace.counter("Mixpanel.decodedBytes", methodCall.remaining());
+        MixpanelTrace.begin("MixpanelMessageCodec.decode");
+        try {
+            return super.decodeMethodCall(methodCall);
+        } finally {
+            MixpanelTrace.end();
+        }
+    }
+
+    @Override
+    public ByteBuffer encodeMethodCall(MethodCall methodCall) {
+        if (!MixpanelTrace.isEnabled()) {
+            return encodeCall(methodCall);
+        }
+        MixpanelTrace.begin("MixpanelMessageCodec.encode " + methodCall.method);
+        try {
+            ByteBuffer encoded = encodeCall(methodCall);
+            MixpanelTrace.counter("Mixpanel.encodedBytes", encoded.position());
+            return encoded;
+        } finally {
+            MixpanelTrace.end();
+        }
+    }
+
+    @Override
+    public ByteBuffer encodeSuccessEnvelope(Object result) {
+        if (!MixpanelTrace.isEnabled()) {
+            return encodeSuccess(result);
+        }
+        MixpanelTrace.begin("MixpanelMessageCodec.encode reply");
+        try {
+            ByteBuffer encoded = encodeSuccess(result);
+            MixpanelTrace.counter("Mixpanel.encodedBytes", encoded.position());
+            return encoded;
+        } finally {
+            MixpanelTrace.end();
+        }
+    }
+
+    // Same wire format as StandardMethodCodec: the method name followed by
+    // the arguments.
+    private static ByteBuffer encodeCall(MethodCall methodCall) {
+        EncodeBufferPool pool = EncodeBufferPool.get();
+        ByteArrayOutputStream stream = pool.begin();
+        MixpanelMessageCodec.instance.writeValue(stream, methodCall.method);
+        MixpanelMessageCodec.instance.writeValue(stream, methodCall.arguments);
+        return pool.finish();
+    }
+
+    // Same wire format as StandardMethodCodec: a zero byte, then the result.
+    private static ByteBuffer encodeSuccess(Object result) {
+        EncodeBufferPool pool = EncodeBufferPool.get();
+        ByteArrayOutputStream stream = pool.begin();
+        stream.write(0);
+        MixpanelMessageCodec.instance.writeValue(stream, result);
+        return pool.finish();
+    }
+}
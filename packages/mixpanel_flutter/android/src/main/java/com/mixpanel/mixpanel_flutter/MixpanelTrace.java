@@ -0,0 +1,87 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Trace;
+
+/**
+ * Thin wrapper over {@link android.os.Trace} for the bridge's systrace /
+ * Perfetto instrumentation. Sections show up under the app's process in a
+ * standard trace capture.
+ *
+ * Off by default; apps opt in from their AndroidManifest:
+ * <pre>
+ * &lt;meta-data android:name="com.mixpanel.flutter.EnableTracing" android:value="true" /&gt;
+ * </pre>
+ * Even then nothing is recorded unless a trace is being captured, which
+ * can only be asked cheaply from API 29 on, so older devices are never
+ * instrumented.
+ *
+ * Callers should check {@link #isEnabled()} before building section names
+ * so that untraced runs don't pay for string concatenation.
+ */
+final class MixpanelTrace {
+
+    private static final String META_ENABLE_TRACING = "com.mixpanel.flutter.EnableTracing";
+
+    private static volatile boolean enabled;
+
+    private MixpanelTrace() {
+    }
+
+    /** Turns the bridge instrumentation on or off, e.g. for tests and benchmarks. */
+    static void setEnabled(boolean enabled) {
+        MixpanelTrace.enabled = enabled;
+    }
+
+    /** Reads the opt-in from the application's manifest meta-data, if any. */
+    static void loadFromManifest(Context context) {
+        Bundle metaData;
+        try {
+            ApplicationInfo info = context.getPackageManager()
+                    .getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+            metaData = info.metaData;
+        } catch (PackageManager.NameNotFoundException e) {
+            return;
+        }
+        if (metaData != null) {
+            setEnabled(metaData.getBoolean(META_ENABLE_TRACING, false));
+        }
+    }
+
+    static boolean isEnabled() {
+        return enabled
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && Trace.isEnabled();
+    }
+
+    static void begin(String sectionName) {
+        // Section names longer than 127 chars throw on some API levels.
+        Trace.beginSection(sectionName.length() > 127 ? sectionName.substring(0, 127) : sectionName);
+    }
+
+    static void end() {
+        Trace.endSection();
+    }
+
+    static void beginAsync(String sectionName, int cookie) {
+        if (isEnabled()) {
+            Trace.beginAsyncSection(sectionName, cookie);
+        }
+    }
+
+    static void endAsync(String sectionName, int cookie) {
+        if (isEnabled()) {
+            Trace.endAsyncSection(sectionName, cookie);
+        }
+    }
+
+    static void counter(String counterName, long value) {
+        if (isEnabled()) {
+            Trace.setCounter(counterName, value);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+/**
+ * Size limits applied while decoding `track` properties, before anything is
+ * materialized into maps or JSON. They are safety nets against accidental
+ * blobs rather than a mirror of server-side validation, so the defaults are
+ * generous and kept below the 1 MB per-event ingestion limit.
+ *
+ * Apps can override them in their AndroidManifest:
+ * <pre>
+ * &lt;meta-data android:name="com.mixpanel.flutter.MaxPropertyValueBytes" android:value="8192" /&gt;
+ * &lt;meta-data android:name="com.mixpanel.flutter.MaxCollectionLength" android:value="255" /&gt;
+ * &lt;meta-data android:name="com.mixpanel.flutter.MaxEventBytes" android:value="262144" /&gt;
+ * </pre>
+ */
+final class PayloadLimits {
+
+    static final PayloadLimits DEFAULT = new PayloadLimits(64 * 1024, 2048, 900 * 1024);
+
+    private static final String META_PREFIX = "com.mixpanel.flutter.";
+
+    private static volatile PayloadLimits current = DEFAULT;
+
+    /** Longest string value kept, in UTF-8 bytes; longer ones are truncated. */
+    final int maxValueBytes;
+    /** Most elements kept per list or map; the rest are dropped. */
+    final int maxCollectionLength;
+    /** Approximate decoded size of one event's properties; values past it are dropped. */
+    final int maxEventBytes;
+
+    PayloadLimits(int maxValueBytes, int maxCollectionLength, int maxEventBytes) {
+        this.maxValueBytes = maxValueBytes;
+        this.maxCollectionLength = maxCollectionLength;
+        this.maxEventBytes = maxEventBytes;
+    }
+
+    static PayloadLimits current() {
+        return current;
+    }
+
+    static void setCurrent(PayloadLimits limits) {
+        current = limits;
+    }
+
+    /** Reads overrides from the application's manifest meta-data, if any. */
+    static void loadFromManifest(Context context) {
+        Bundle metaData;
+        try {
+            ApplicationInfo info = context.getPackageManager()
+                    .getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+            metaData = info.metaData;
+        } catch (PackageManager.NameNotFoundException e) {
+            return;
+        }
+        if (metaData == null) {
+            return;
+        }
+        setCurrent(new PayloadLimits(
+                metaData.getInt(META_PREFIX + "MaxPropertyValueBytes", DEFAULT.maxValueBytes),
+                metaData.getInt(META_PREFIX + "MaxCollectionLength", DEFAULT.maxCollectionLength),
+                metaData.getInt(META_PREFIX + "MaxEventBytes", DEFAULT.maxEventBytes)));
+    }
+}
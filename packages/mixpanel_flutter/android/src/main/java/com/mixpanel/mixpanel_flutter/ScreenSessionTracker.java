@@ -0,0 +1,155 @@
+package com.mixpanel.mixpanel_flutter;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+/**
+ * Turns the screen view and leave calls coming from Dart into screen
+ * sessions, so navigation churn (redirects, tab bounces) doesn't upload a
+ * burst of near-empty screen events.
+ *
+ * Off until Dart sets a minimum duration; until then every call is passed
+ * straight to autocapture. Once on, a screen view is held for the minimum
+ * duration and only sent if the screen is still showing when it elapses.
+ * Leaving sooner drops both the view and the leave. A screen that was sent
+ * gets one leave event carrying its dwell time in seconds under
+ * {@link #DURATION_PROPERTY}, measured on the monotonic clock. Viewing
+ * another screen without leaving the current one leaves it implicitly, with
+ * the properties of its view.
+ *
+ * All methods must be called on the platform thread.
+ */
+class ScreenSessionTracker {
+
+    static final String DURATION_PROPERTY = "$duration";
+
+    private final Handler handler;
+    private final Runnable sendView = this::onMinimumElapsed;
+
+    // Negative while the tracker is off.
+    private long minimumMillis = -1;
+    private Session current;
+    private long suppressedViews;
+
+    private static final class Session {
+        final MixpanelAPI mixpanel;
+        final String screenName;
+        final JSONObject viewProperties;
+        final long startedAt = SystemClock.elapsedRealtime();
+        boolean viewSent;
+
+        Session(MixpanelAPI mixpanel, String screenName, JSONObject viewProperties) {
+            this.mixpanel = mixpanel;
+            this.screenName = screenName;
+            this.viewProperties = viewProperties;
+        }
+    }
+
+    ScreenSessionTracker() {
+        this(new Handler(Looper.getMainLooper()));
+    }
+
+    ScreenSessionTracker(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Sets how long a screen must show before its view is sent; negative
+     * turns the tracker off. A view still being held when the tracker is
+     * turned off is sent right away.
+     */
+    void setMinimumMillis(long minimumMillis) {
+        this.minimumMillis = minimumMillis;
+        if (minimumMillis < 0) {
+            drain();
+        }
+    }
+
+    void onView(MixpanelAPI mixpanel, String screenName, JSONObject properties) {
+        if (minimumMillis < 0) {
+            trackView(mixpanel, screenName, properties);
+            return;
+        }
+        endCurrent(null);
+        current = new Session(mixpanel, screenName, properties);
+        if (minimumMillis == 0) {
+            onMinimumElapsed();
+        } else {
+            handler.postDelayed(sendView, minimumMillis);
+        }
+    }
+
+    void onLeave(MixpanelAPI mixpanel, String screenName, JSONObject properties) {
+        if (minimumMillis < 0 || current == null || !current.screenName.equals(screenName)) {
+            trackLeave(mixpanel, screenName, properties);
+            return;
+        }
+        endCurrent(properties);
+    }
+
+    /**
+     * Sends a view still being held and forgets the session. Called when the
+     * engine detaches, since no leave will follow.
+     */
+    void drain() {
+        handler.removeCallbacks(sendView);
+        Session session = current;
+        current = null;
+        if (session != null && !session.viewSent) {
+            trackView(session.mixpanel, session.screenName, session.viewProperties);
+        }
+    }
+
+    private void onMinimumElapsed() {
+        Session session = current;
+        if (session == null || session.viewSent) {
+            return;
+        }
+        session.viewSent = true;
+        trackView(session.mixpanel, session.screenName, session.viewProperties);
+    }
+
+    private void endCurrent(JSONObject leaveProperties) {
+        Session session = current;
+        if (session == null) {
+            return;
+        }
+        current = null;
+        handler.removeCallbacks(sendView);
+        if (!session.viewSent) {
+            MixpanelTrace.counter("Mixpanel.suppressedScreenViews", ++suppressedViews);
+            return;
+        }
+        long dwellMillis = SystemClock.elapsedRealtime() - session.startedAt;
+        JSONObject properties = leaveProperties;
+        try {
+            if (properties == null) {
+                // The view's object already went to the SDK; don't touch it.
+                properties = MixpanelFlutterHelper.getMergedProperties(
+                        new JSONObject(), session.viewProperties);
+            }
+            properties.put(DURATION_PROPERTY, dwellMillis / 1000.0);
+        } catch (JSONException e) {
+            // Only thrown for non-finite numbers, which a copy can't contain.
+        }
+        trackLeave(session.mixpanel, session.screenName, properties);
+    }
+
+    private static void trackView(MixpanelAPI mixpanel, String screenName, JSONObject properties) {
+        if (mixpanel != null && mixpanel.getAutocapture() != null) {
+            mixpanel.getAutocapture().trackScreenView(screenName, properties);
+        }
+    }
+
+    private static void trackLeave(MixpanelAPI mixpanel, String screenName, JSONObject properties) {
+        if (mixpanel != null && mixpanel.getAutocapture() != null) {
+            mixpanel.getAutocapture().trackScreenLeave(screenName, properties);
+        }
+    }
+}
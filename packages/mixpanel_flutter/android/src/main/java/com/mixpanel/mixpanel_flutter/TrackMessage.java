@@ -0,0 +1,61 @@
+package com.mixpanel.mixpanel_flutter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed arguments of the `track` method call. Dart encodes them positionally
+ * under {@link MixpanelMessageCodec#TRACK_MESSAGE}, so neither side pays for
+ * key strings or map lookups on the hottest call.
+ *
+ * Events tracked later than they happened also carry the client-side
+ * {@link #time} and {@link #sequence}; without them the message is just
+ * [eventName, properties].
+ */
+final class TrackMessage {
+
+    /** Property recording {@link #sequence}. */
+    static final String SEQUENCE_PROPERTY = "$mp_client_sequence";
+
+    final String eventName;
+    final Map<String, Object> properties;
+    final Date time;
+    final Long sequence;
+
+    TrackMessage(String eventName, Map<String, Object> properties) {
+        this(eventName, properties, null, null);
+    }
+
+    TrackMessage(String eventName, Map<String, Object> properties, Date time, Long sequence) {
+        this.eventName = eventName;
+        this.properties = properties;
+        this.time = time;
+        this.sequence = sequence;
+    }
+
+    List<Object> toList() {
+        if (time == null && sequence == null) {
+            return Arrays.asList(eventName, properties);
+        }
+        return Arrays.asList(eventName, properties, time, sequence);
+    }
+
+    /**
+     * Records client-side timing on the outgoing properties. The native SDK
+     * lets a {@code time} property override its own timestamp, so the event
+     * keeps the time it happened however late it is tracked.
+     */
+    static void putClientTiming(JSONObject properties, Date time, Number sequence) throws JSONException {
+        if (time != null) {
+            properties.put("time", time.getTime());
+        }
+        if (sequence != null) {
+            properties.put(SEQUENCE_PROPERTY, sequence.longValue());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.mixpanel.mixpanel_flutter
 
-import android.util.Log
+import android.content.ComponentCallbacks2
+import android.os.SystemClock
 import com.mixpanel.android.eventbridge.MixpanelEventBridge
 import io.flutter.plugin.common.MethodChannel
 import kotlinx.coroutines.CoroutineScope
@@ -12,19 +13,23 @@ import kotlinx.coroutines.launch
 import kotlinx.coroutines.plus
 import org.json.JSONException
 import org.json.JSONObject
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * Subscribes to the native Mixpanel SDK's [MixpanelEventBridge] (a Kotlin
  * `SharedFlow`) and forwards each event to the Dart side via the existing
- * Flutter MethodChannel.
+ * Flutter MethodChannel of every engine that asked for it.
  *
- * Lifecycle is driven from Dart: [start] runs when the plugin receives a
- * `startEventBridge` MethodChannel call (issued the first time a Dart
- * consumer subscribes to `MixpanelEventBridge.events`), and [stop] runs
- * on `stopEventBridge` (last cancel) and on `onDetachedFromEngine`.
+ * Lifecycle is driven from Dart, per engine: [start] runs when the plugin
+ * receives a `startEventBridge` MethodChannel call (issued the first time a
+ * Dart consumer subscribes to `MixpanelEventBridge.events`), and [stop]
+ * runs on `stopEventBridge` (last cancel) and on `onDetachedFromEngine`.
+ * The collector stays active while at least one channel is attached.
  *
  * This object is a singleton because the native SharedFlow itself is a
- * singleton — we never want more than one active collector per process.
+ * singleton — we never want more than one active collector per process,
+ * even with several Flutter engines (add-to-app) attached.
  */
 object EventBridgeSubscriber {
 
@@ -37,37 +42,90 @@ object EventBridgeSubscriber {
     // depending on its overflow policy) whenever the main thread is busy.
     // Main dispatcher is FIFO so per-event ordering is preserved.
     private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    private val channels = CopyOnWriteArraySet<MethodChannel>()
     private var job: Job? = null
 
+    // Events converted but not yet handed to the channel(s); exported as a
+    // trace counter so main-thread backlog is visible in Perfetto.
+    private val pendingDispatches = AtomicInteger()
+    private val dispatchCookies = AtomicInteger()
+
+    // Under memory pressure the main-thread backlog is capped and events
+    // past the cap are dropped; the bridge is observational, so losing a
+    // few is preferable to growing the heap while the system is trimming.
+    // Android never reports recovery, so the cap lapses after a while.
+    private const val PRESSURE_HOLD_MILLIS = 30_000L
+    @Volatile private var pendingLimit = Int.MAX_VALUE
+    @Volatile private var pendingLimitUntil = 0L
+    private val droppedEvents = AtomicInteger()
+
     @JvmStatic
+    @Synchronized
     fun start(channel: MethodChannel) {
+        channels.add(channel)
         if (job != null) return
         job = scope.launch {
             MixpanelEventBridge.events().collect { event ->
+                if (overPendingLimit()) {
+                    MixpanelTrace.counter("Mixpanel.eventBridgeDropped", droppedEvents.incrementAndGet().toLong())
+                    return@collect
+                }
+                // Convert once and share the result across engines — the
+                // codec only reads the map, so no per-channel copy is needed.
                 val properties = event.properties?.let { safelyConvert(it) }
                 val args = mapOf(
                     "eventName" to event.eventName,
                     "properties" to properties,
                 )
+                val cookie = dispatchCookies.incrementAndGet()
+                MixpanelTrace.beginAsync("EventBridgeSubscriber.dispatch", cookie)
+                MixpanelTrace.counter("Mixpanel.eventBridgePending", pendingDispatches.incrementAndGet().toLong())
                 launch(Dispatchers.Main) {
-                    channel.invokeMethod("onMixpanelEvent", args)
+                    for (target in channels) {
+                        target.invokeMethod("onMixpanelEvent", args)
+                    }
+                    MixpanelTrace.counter("Mixpanel.eventBridgePending", pendingDispatches.decrementAndGet().toLong())
+                    MixpanelTrace.endAsync("EventBridgeSubscriber.dispatch", cookie)
                 }
             }
         }
     }
 
     @JvmStatic
-    fun stop() {
+    @Synchronized
+    fun stop(channel: MethodChannel) {
+        channels.remove(channel)
+        if (channels.isNotEmpty()) return
         job?.cancel()
         job = null
     }
 
-    private fun safelyConvert(json: JSONObject): Map<String, Any?>? = try {
-        MixpanelFlutterHelper.toMap(json)
-    } catch (e: JSONException) {
-        // A malformed properties payload should not abort the whole
-        // subscription — drop this event's properties and keep collecting.
-        Log.w("EventBridgeSubscriber", "Failed to convert event properties", e)
-        null
+    @JvmStatic
+    fun onTrimMemory(level: Int) {
+        pendingLimit = if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) 16 else 64
+        pendingLimitUntil = SystemClock.elapsedRealtime() + PRESSURE_HOLD_MILLIS
+    }
+
+    private fun overPendingLimit(): Boolean {
+        if (pendingLimit == Int.MAX_VALUE) return false
+        if (SystemClock.elapsedRealtime() >= pendingLimitUntil) {
+            pendingLimit = Int.MAX_VALUE
+            return false
+        }
+        return pendingDispatches.get() >= pendingLimit
+    }
+
+    private fun safelyConvert(json: JSONObject): Map<String, Any?>? {
+        MixpanelTrace.begin("EventBridgeSubscriber.convert")
+        return try {
+            MixpanelFlutterHelper.toMap(json)
+        } catch (e: JSONException) {
+            // A malformed properties payload should not abort the whole
+            // subscription — drop this event's properties and keep collecting.
+            BridgeLog.instance.w("eventBridge.unconvertible") { "Failed to convert event properties: ${e.message}" }
+            null
+        } finally {
+            MixpanelTrace.end()
+        }
     }
 }
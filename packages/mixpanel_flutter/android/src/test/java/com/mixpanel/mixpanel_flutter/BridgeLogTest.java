@@ -0,0 +1,86 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Robolectric because warnings go to android.util.Log.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class BridgeLogTest {
+
+    @Test
+    public void repeatsWithinWindowAreSuppressedAndNotFormatted() {
+        BridgeLog log = new BridgeLog(8);
+        AtomicInteger formatted = new AtomicInteger();
+        BridgeLog.Message message = () -> "flag " + formatted.incrementAndGet();
+
+        assertEquals("flag 1", log.log("isEnabled.nonBoolean", message, 0));
+        assertNull(log.log("isEnabled.nonBoolean", message, 1_000));
+        assertNull(log.log("isEnabled.nonBoolean", message, 2_000));
+
+        assertEquals(1, formatted.get());
+        assertEquals(1, log.snapshot().size());
+    }
+
+    @Test
+    public void nextWarningAfterWindowCarriesSuppressedCount() {
+        BridgeLog log = new BridgeLog(8);
+
+        log.log("getVariant.beforeInit", () -> "early", 0);
+        log.log("getVariant.beforeInit", () -> "early", 1);
+        log.log("getVariant.beforeInit", () -> "early", 2);
+        log.log("getVariant.beforeInit", () -> "early", BridgeLog.WINDOW_MILLIS + 5);
+
+        List<Map<String, Object>> entries = log.snapshot();
+        assertEquals(2, entries.size());
+        assertEquals(0, entries.get(0).get("suppressed"));
+        assertEquals(2, entries.get(1).get("suppressed"));
+        assertEquals("getVariant.beforeInit", entries.get(1).get("key"));
+    }
+
+    @Test
+    public void keysAreLimitedIndependently() {
+        BridgeLog log = new BridgeLog(8);
+
+        log.log("loadFlags.beforeInit", () -> "a", 0);
+        log.log("getAllVariants.beforeInit", () -> "b", 0);
+
+        assertEquals(2, log.snapshot().size());
+    }
+
+    @Test
+    public void ringKeepsNewestEntriesOldestFirst() {
+        BridgeLog log = new BridgeLog(2);
+
+        log.log("one", () -> "1", 0);
+        log.log("two", () -> "2", 0);
+        log.log("three", () -> "3", 0);
+
+        List<Map<String, Object>> entries = log.snapshot();
+        assertEquals(2, entries.size());
+        assertEquals("2", entries.get(0).get("message"));
+        assertEquals("3", entries.get(1).get("message"));
+    }
+
+    @Test
+    public void mutedLogNeverFormats() {
+        BridgeLog log = new BridgeLog(8);
+        log.setMuted(true);
+        AtomicInteger formatted = new AtomicInteger();
+
+        log.w("track.beforeInit", () -> "dropped " + formatted.incrementAndGet());
+
+        assertEquals(0, formatted.get());
+        assertTrue(log.snapshot().isEmpty());
+    }
+}
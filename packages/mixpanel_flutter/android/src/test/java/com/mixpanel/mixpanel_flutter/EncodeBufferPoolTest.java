@@ -0,0 +1,88 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodCall;
+
+// Robolectric because the codec emits trace sections.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class EncodeBufferPoolTest {
+
+    @Test
+    public void sizeClassesArePowersOfTwoFromMinimum() {
+        assertEquals(0, EncodeBufferPool.classFor(1));
+        assertEquals(0, EncodeBufferPool.classFor(256));
+        assertEquals(1, EncodeBufferPool.classFor(257));
+        assertEquals(1, EncodeBufferPool.classFor(512));
+        assertEquals(2, EncodeBufferPool.classFor(513));
+        assertEquals(8, EncodeBufferPool.classFor(EncodeBufferPool.MAX_POOLED_BYTES));
+    }
+
+    @Test
+    public void repliesOfSimilarSizeReuseOneBuffer() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("plan", "pro");
+
+        ByteBuffer first = MixpanelMethodCodec.instance.encodeSuccessEnvelope(properties);
+        int firstLength = first.position();
+        ByteBuffer second = MixpanelMethodCodec.instance.encodeSuccessEnvelope(properties);
+
+        assertSame(first, second);
+        assertEquals(firstLength, second.position());
+    }
+
+    @Test
+    public void pooledReplyMatchesStockEncoding() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("count", 3);
+
+        ByteBuffer pooled = MixpanelMethodCodec.instance.encodeSuccessEnvelope(properties);
+        pooled.flip();
+        Object decoded = MixpanelMethodCodec.instance.decodeEnvelope(pooled);
+
+        assertEquals(properties, decoded);
+    }
+
+    @Test
+    public void pooledCallMatchesStockEncoding() {
+        MethodCall call = new MethodCall("onMixpanelEvent", "payload");
+
+        ByteBuffer pooled = MixpanelMethodCodec.instance.encodeMethodCall(call);
+        pooled.flip();
+        MethodCall decoded = MixpanelMethodCodec.instance.decodeMethodCall(pooled);
+
+        assertEquals("onMixpanelEvent", decoded.method);
+        assertEquals("payload", decoded.arguments);
+    }
+
+    @Test
+    public void oversizedMessagesAreNotPooled() {
+        byte[] large = new byte[EncodeBufferPool.MAX_POOLED_BYTES + 1];
+
+        ByteBuffer first = MixpanelMethodCodec.instance.encodeSuccessEnvelope(large);
+        ByteBuffer second = MixpanelMethodCodec.instance.encodeSuccessEnvelope(large);
+
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void trimDropsThePool() {
+        ByteBuffer before = MixpanelMethodCodec.instance.encodeSuccessEnvelope("value");
+        EncodeBufferPool.trim();
+        ByteBuffer after = MixpanelMethodCodec.instance.encodeSuccessEnvelope("value");
+
+        assertNotSame(before, after);
+    }
+}
@@ -0,0 +1,172 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+// Robolectric because records are built with org.json.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class EventJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private EventJournal journal;
+
+    @Before
+    public void setUp() throws Exception {
+        file = new File(folder.getRoot(), "journal");
+        journal = new EventJournal(file);
+        BridgeLog.instance.clear();
+    }
+
+    @Test
+    public void appendWritesLengthPrefixedRecordsAndATerminator() throws Exception {
+        assertTrue(journal.append("token", "Signed Up", new JSONObject().put("plan", "pro")));
+
+        ByteBuffer raw = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        assertEquals(EventJournal.CAPACITY_BYTES, raw.capacity());
+        int length = raw.getInt(0);
+        JSONObject record = new JSONObject(new String(raw.array(), 4, length, StandardCharsets.UTF_8));
+        assertEquals("token", record.getString("token"));
+        assertEquals("Signed Up", record.getString("event"));
+        assertEquals("pro", record.getJSONObject("properties").getString("plan"));
+        assertTrue(record.getJSONObject("properties").has("time"));
+        assertEquals(0, raw.getInt(4 + length));
+    }
+
+    @Test
+    public void recordsSurviveReopeningTheFile() throws Exception {
+        journal.append("token", "First", new JSONObject());
+        journal.append("token", "Second", new JSONObject());
+        MixpanelAPI mixpanel = mock(MixpanelAPI.class);
+
+        new EventJournal(file).replayInto("token", mixpanel, new JSONObject());
+
+        InOrder order = inOrder(mixpanel);
+        order.verify(mixpanel).track(eq("First"), any(JSONObject.class));
+        order.verify(mixpanel).track(eq("Second"), any(JSONObject.class));
+    }
+
+    @Test
+    public void replayTracksMatchingAndUntokenedEventsInOrder() throws Exception {
+        journal.append("a", "A1", new JSONObject());
+        journal.append("b", "B1", new JSONObject());
+        journal.append(null, "Untokened", new JSONObject());
+        journal.append("a", "A2", new JSONObject());
+        MixpanelAPI mixpanel = mock(MixpanelAPI.class);
+
+        journal.replayInto("a", mixpanel, new JSONObject().put("$lib_version", "1.0"));
+
+        InOrder order = inOrder(mixpanel);
+        ArgumentCaptor<JSONObject> properties = ArgumentCaptor.forClass(JSONObject.class);
+        order.verify(mixpanel).track(eq("A1"), properties.capture());
+        order.verify(mixpanel).track(eq("Untokened"), any(JSONObject.class));
+        order.verify(mixpanel).track(eq("A2"), any(JSONObject.class));
+        verify(mixpanel, never()).track(eq("B1"), any(JSONObject.class));
+        assertEquals("1.0", properties.getValue().getString("$lib_version"));
+        assertTrue(properties.getValue().has("time"));
+    }
+
+    @Test
+    public void replayCompactsOtherTokensToTheFront() throws Exception {
+        journal.append("a", "A1", new JSONObject());
+        journal.append("b", "B1", new JSONObject());
+        journal.append("a", "A2", new JSONObject());
+        journal.append("b", "B2", new JSONObject());
+
+        journal.replayInto("a", mock(MixpanelAPI.class), new JSONObject());
+
+        ByteBuffer raw = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        int first = raw.getInt(0);
+        assertEquals("B1", recordAt(raw, 0).getString("event"));
+        assertEquals("B2", recordAt(raw, 4 + first).getString("event"));
+        int second = raw.getInt(4 + first);
+        assertEquals(0, raw.getInt(8 + first + second));
+
+        MixpanelAPI other = mock(MixpanelAPI.class);
+        journal.replayInto("b", other, new JSONObject());
+        InOrder order = inOrder(other);
+        order.verify(other).track(eq("B1"), any(JSONObject.class));
+        order.verify(other).track(eq("B2"), any(JSONObject.class));
+        assertEquals(0, ByteBuffer.wrap(Files.readAllBytes(file.toPath())).getInt(0));
+    }
+
+    @Test
+    public void releaseIfEmptyKeepsAJournalWithRecordsMapped() throws Exception {
+        journal.append("token", "Pending", new JSONObject());
+
+        journal.releaseIfEmpty();
+        assertTrue(journal.isMapped());
+
+        MixpanelAPI mixpanel = mock(MixpanelAPI.class);
+        journal.replayInto("token", mixpanel, new JSONObject());
+        journal.releaseIfEmpty();
+        assertFalse(journal.isMapped());
+
+        // The next append maps the file again.
+        assertTrue(journal.append("token", "Later", new JSONObject()));
+        assertTrue(journal.isMapped());
+        journal.replayInto("token", mixpanel, new JSONObject());
+        verify(mixpanel, times(2)).track(anyString(), any(JSONObject.class));
+    }
+
+    @Test
+    public void fullJournalDropsNewEventsUntilReplayed() throws Exception {
+        JSONObject properties = new JSONObject().put("payload", new String(new char[1000]).replace('\0', 'x'));
+        int appended = 0;
+        while (journal.append("token", "Event " + appended, properties)) {
+            appended++;
+        }
+        assertTrue(appended > 0);
+        assertEquals("journal.full", lastLogKey());
+
+        // Every record fits in the region on disk, as a new process sees it.
+        EventJournal reopened = new EventJournal(file);
+        MixpanelAPI mixpanel = mock(MixpanelAPI.class);
+        reopened.replayInto("token", mixpanel, new JSONObject());
+        verify(mixpanel, times(appended)).track(anyString(), any(JSONObject.class));
+
+        assertTrue(reopened.append("token", "After Replay", properties));
+    }
+
+    private static JSONObject recordAt(ByteBuffer raw, int position) throws Exception {
+        int length = raw.getInt(position);
+        return new JSONObject(new String(raw.array(), position + 4, length, StandardCharsets.UTF_8));
+    }
+
+    private static String lastLogKey() {
+        List<Map<String, Object>> entries = BridgeLog.instance.snapshot();
+        return (String) entries.get(entries.size() - 1).get("key");
+    }
+}
@@ -0,0 +1,195 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodChannel;
+
+import com.mixpanel.android.mpmetrics.FlagCompletionCallback;
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+import com.mixpanel.android.mpmetrics.MixpanelFlagVariant;
+
+// Robolectric for a main looper and SystemClock that the test drives.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class FlagUpdatesWatcherTest {
+
+    private FlagUpdatesWatcher watcher;
+    private MethodChannel channel;
+
+    @Before
+    public void setUp() {
+        watcher = new FlagUpdatesWatcher(new Handler(Looper.getMainLooper()), variant -> {
+            Map<String, Object> map = new HashMap<>();
+            map.put("key", variant.key);
+            map.put("value", variant.value);
+            return map;
+        });
+        channel = mock(MethodChannel.class);
+    }
+
+    @Test
+    public void readinessPollBacksOffToMaxInterval() {
+        FakeFlags flags = new FakeFlags();
+        watcher.watch(flags.instance);
+        watcher.start(channel);
+        assertEquals(1, flags.readyChecks);
+
+        // Polls at 50, 150, 350, 750, 1550, then every MAX_POLL_MILLIS.
+        advance(49);
+        assertEquals(1, flags.readyChecks);
+        advance(1);
+        assertEquals(2, flags.readyChecks);
+        advance(99);
+        assertEquals(2, flags.readyChecks);
+        advance(1);
+        assertEquals(3, flags.readyChecks);
+        advance(1550 - 150);
+        assertEquals(6, flags.readyChecks);
+        advance(FlagUpdatesWatcher.MAX_POLL_MILLIS - 1);
+        assertEquals(6, flags.readyChecks);
+        advance(1);
+        assertEquals(7, flags.readyChecks);
+
+        flags.ready = true;
+        advance(FlagUpdatesWatcher.MAX_POLL_MILLIS);
+        verify(channel).invokeMethod("onFlagsReady", null);
+    }
+
+    @Test
+    public void pollingStopsAtLimitAndRefreshChecksAgain() {
+        FakeFlags flags = new FakeFlags();
+        watcher.watch(flags.instance);
+        watcher.start(channel);
+
+        advance(FlagUpdatesWatcher.POLL_LIMIT_MILLIS + FlagUpdatesWatcher.MAX_POLL_MILLIS);
+        int checks = flags.readyChecks;
+        advance(10 * FlagUpdatesWatcher.MAX_POLL_MILLIS);
+        assertEquals(checks, flags.readyChecks);
+        verify(channel, never()).invokeMethod(anyString(), any());
+
+        flags.ready = true;
+        watcher.refresh();
+        verify(channel).invokeMethod("onFlagsReady", null);
+    }
+
+    @Test
+    public void refreshSendsOnlyChangedVariantsAndNullForRemovedFlags() {
+        FakeFlags flags = new FakeFlags();
+        flags.ready = true;
+        flags.variants.put("a", new MixpanelFlagVariant("a", 1));
+        flags.variants.put("b", new MixpanelFlagVariant("b", 2));
+        watcher.watch(flags.instance);
+        watcher.start(channel);
+        ShadowLooper.idleMainLooper();
+
+        flags.variants.remove("b");
+        flags.variants.put("c", new MixpanelFlagVariant("c", 3));
+        watcher.refresh();
+        ShadowLooper.idleMainLooper();
+
+        // Nothing changed since the last push.
+        watcher.refresh();
+        ShadowLooper.idleMainLooper();
+
+        List<Object> pushes = variantPushes(2);
+        assertEquals(2, ((Map<?, ?>) pushes.get(0)).size());
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("b", null);
+        expected.put("c", variant("c", 3));
+        assertEquals(expected, pushes.get(1));
+    }
+
+    @Test
+    public void variantsOfAReplacedInstanceAreDropped() {
+        FakeFlags stale = new FakeFlags();
+        stale.ready = true;
+        stale.deferred = true;
+        stale.variants.put("old", new MixpanelFlagVariant("old", true));
+        watcher.watch(stale.instance);
+        watcher.start(channel);
+
+        FakeFlags current = new FakeFlags();
+        current.ready = true;
+        current.variants.put("new", new MixpanelFlagVariant("new", true));
+        watcher.watch(current.instance);
+        ShadowLooper.idleMainLooper();
+
+        stale.pending.onComplete(stale.variants);
+        ShadowLooper.idleMainLooper();
+
+        List<Object> pushes = variantPushes(1);
+        assertFalse(((Map<?, ?>) pushes.get(0)).containsKey("old"));
+        assertEquals(variant("new", true), ((Map<?, ?>) pushes.get(0)).get("new"));
+    }
+
+    private List<Object> variantPushes(int expected) {
+        ArgumentCaptor<Object> arguments = ArgumentCaptor.forClass(Object.class);
+        verify(channel, times(expected)).invokeMethod(eq("onVariantsChanged"), arguments.capture());
+        return arguments.getAllValues();
+    }
+
+    private static Map<String, Object> variant(String key, Object value) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("key", key);
+        map.put("value", value);
+        return map;
+    }
+
+    private static void advance(long millis) {
+        ShadowLooper.idleMainLooper(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /** A stubbed instance whose readiness and variants the test sets. */
+    private static final class FakeFlags {
+        final MixpanelAPI instance = mock(MixpanelAPI.class);
+        final Map<String, MixpanelFlagVariant> variants = new HashMap<>();
+        boolean ready;
+        boolean deferred;
+        int readyChecks;
+        FlagCompletionCallback<Map<String, MixpanelFlagVariant>> pending;
+
+        FakeFlags() {
+            MixpanelAPI.Flags flags = mock(MixpanelAPI.Flags.class);
+            when(flags.areFlagsReady()).thenAnswer(invocation -> {
+                readyChecks++;
+                return ready;
+            });
+            doAnswer(invocation -> {
+                FlagCompletionCallback<Map<String, MixpanelFlagVariant>> callback = invocation.getArgument(0);
+                if (deferred) {
+                    pending = callback;
+                } else {
+                    callback.onComplete(new HashMap<>(variants));
+                }
+                return null;
+            }).when(flags).getAllVariants(any());
+            when(instance.getFlags()).thenReturn(flags);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+// Robolectric for a main looper whose clock the test drives.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class FlushCoalescerTest {
+
+    private static final long WINDOW_MILLIS = 1000;
+
+    private FlushCoalescer coalescer;
+    private MixpanelAPI mixpanel;
+
+    @Before
+    public void setUp() {
+        coalescer = new FlushCoalescer(new Handler(Looper.getMainLooper()), WINDOW_MILLIS);
+        mixpanel = mock(MixpanelAPI.class);
+    }
+
+    @Test
+    public void leadingFlushRunsImmediately() {
+        CountingResult result = new CountingResult();
+
+        coalescer.requestFlush(mixpanel, result);
+
+        verify(mixpanel, times(1)).flush();
+        assertEquals(1, result.successes);
+    }
+
+    @Test
+    public void requestsInsideWindowShareOneTrailingFlush() {
+        CountingResult leading = new CountingResult();
+        CountingResult parked = new CountingResult();
+        coalescer.requestFlush(mixpanel, leading);
+        coalescer.requestFlush(mixpanel, parked);
+        coalescer.requestFlush(mixpanel, parked);
+
+        verify(mixpanel, times(1)).flush();
+        assertEquals(0, parked.successes);
+
+        ShadowLooper.idleMainLooper(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(mixpanel, times(2)).flush();
+        assertEquals(2, parked.successes);
+    }
+
+    @Test
+    public void trailingFlushCoversEveryParkedInstance() {
+        MixpanelAPI other = mock(MixpanelAPI.class);
+        coalescer.requestFlush(mixpanel, new CountingResult());
+        coalescer.requestFlush(mixpanel, new CountingResult());
+        coalescer.requestFlush(other, new CountingResult());
+
+        ShadowLooper.idleMainLooper(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(mixpanel, times(2)).flush();
+        verify(other, times(1)).flush();
+    }
+
+    @Test
+    public void windowRearmsAfterTrailingFlush() {
+        coalescer.requestFlush(mixpanel, new CountingResult());
+        coalescer.requestFlush(mixpanel, new CountingResult());
+        ShadowLooper.idleMainLooper(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        verify(mixpanel, times(2)).flush();
+
+        // The trailing flush opened a new window, so this one is parked too.
+        CountingResult next = new CountingResult();
+        coalescer.requestFlush(mixpanel, next);
+        verify(mixpanel, times(2)).flush();
+        assertEquals(0, next.successes);
+
+        ShadowLooper.idleMainLooper(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        verify(mixpanel, times(3)).flush();
+        assertEquals(1, next.successes);
+
+        // A quiet window closes without flushing; the next request leads.
+        ShadowLooper.idleMainLooper(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        coalescer.requestFlush(mixpanel, new CountingResult());
+        verify(mixpanel, times(4)).flush();
+    }
+
+    @Test
+    public void drainCompletesEveryParkedResult() {
+        CountingResult parked = new CountingResult();
+        coalescer.requestFlush(mixpanel, new CountingResult());
+        coalescer.requestFlush(mixpanel, parked);
+        coalescer.requestFlush(mixpanel, parked);
+
+        coalescer.drain();
+
+        verify(mixpanel, times(2)).flush();
+        assertEquals(2, parked.successes);
+
+        // Nothing is left to fire when the old window would have closed.
+        ShadowLooper.idleMainLooper(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        verify(mixpanel, times(2)).flush();
+    }
+
+    @Test
+    public void requestWithoutInstanceCompletesWithoutFlushing() {
+        CountingResult result = new CountingResult();
+
+        coalescer.requestFlush(null, result);
+
+        assertEquals(1, result.successes);
+    }
+
+    private static final class CountingResult implements Result {
+        int successes;
+
+        @Override
+        public void success(Object value) {
+            successes++;
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            throw new AssertionError(errorCode);
+        }
+
+        @Override
+        public void notImplemented() {
+            throw new AssertionError("notImplemented");
+        }
+    }
+}
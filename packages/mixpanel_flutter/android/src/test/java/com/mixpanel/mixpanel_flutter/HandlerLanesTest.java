@@ -0,0 +1,101 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HandlerLanesTest {
+
+    @Test
+    public void slowLaneDoesNotBlockOthers() throws Exception {
+        HandlerLanes lanes = new HandlerLanes();
+        CountDownLatch releaseFlags = new CountDownLatch(1);
+        CountDownLatch tracked = new CountDownLatch(1);
+
+        lanes.execute(HandlerLanes.Lane.FLAGS, () -> await(releaseFlags));
+        lanes.execute(HandlerLanes.Lane.EVENTS, tracked::countDown);
+
+        assertTrue(tracked.await(5, TimeUnit.SECONDS));
+        releaseFlags.countDown();
+        lanes.shutdown(() -> { });
+    }
+
+    @Test
+    public void barrierRunsAfterEarlierWorkAndBeforeLaterWork() throws Exception {
+        HandlerLanes lanes = new HandlerLanes();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch finished = new CountDownLatch(3);
+
+        lanes.execute(HandlerLanes.Lane.PEOPLE, () -> {
+            sleep(50);
+            order.add("people before");
+        });
+        lanes.execute(HandlerLanes.Lane.FLAGS, () -> {
+            sleep(50);
+            order.add("flags before");
+        });
+        lanes.execute(HandlerLanes.Lane.ALL, () -> order.add("barrier"));
+        lanes.execute(HandlerLanes.Lane.EVENTS, () -> {
+            order.add("after");
+            finished.countDown();
+        });
+        lanes.execute(HandlerLanes.Lane.PEOPLE, () -> {
+            order.add("after");
+            finished.countDown();
+        });
+        lanes.execute(HandlerLanes.Lane.FLAGS, () -> {
+            order.add("after");
+            finished.countDown();
+        });
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        List<String> snapshot = new ArrayList<>(order);
+        assertTrue(snapshot.subList(0, 2).containsAll(Arrays.asList("people before", "flags before")));
+        assertEquals("barrier", snapshot.get(2));
+        assertEquals(Arrays.asList("after", "after", "after"), snapshot.subList(3, 6));
+        lanes.shutdown(() -> { });
+    }
+
+    @Test
+    public void shutdownRunsQueuedWorkThenLastTask() throws Exception {
+        HandlerLanes lanes = new HandlerLanes();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+
+        lanes.execute(HandlerLanes.Lane.PEOPLE, () -> {
+            sleep(50);
+            order.add("queued");
+        });
+        lanes.shutdown(() -> {
+            order.add("last");
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("queued", "last"), order);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
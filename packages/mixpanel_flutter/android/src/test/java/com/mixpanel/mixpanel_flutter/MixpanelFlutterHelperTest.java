@@ -0,0 +1,92 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+// Robolectric for the Android org.json implementation.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class MixpanelFlutterHelperTest {
+
+    @Test
+    public void numbersCompareByValueAcrossBoxedTypes() throws Exception {
+        assertTrue(MixpanelFlutterHelper.jsonEquals(1, 1L));
+        assertTrue(MixpanelFlutterHelper.jsonEquals(1L, 1.0));
+        assertTrue(MixpanelFlutterHelper.jsonEquals(2.5, 2.5f));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(1L, 1.5));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(2, 3L));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(1, "1"));
+    }
+
+    @Test
+    public void nestedObjectsAndArraysCompareDeeply() throws Exception {
+        JSONObject left = new JSONObject()
+                .put("plan", new JSONObject().put("seats", 3).put("tags", new JSONArray().put("a").put(1)));
+        JSONObject same = new JSONObject()
+                .put("plan", new JSONObject().put("seats", 3L).put("tags", new JSONArray().put("a").put(1.0)));
+        JSONObject reordered = new JSONObject()
+                .put("plan", new JSONObject().put("seats", 3).put("tags", new JSONArray().put(1).put("a")));
+        JSONObject extraKey = new JSONObject()
+                .put("plan", new JSONObject().put("seats", 3).put("tags", new JSONArray().put("a").put(1)).put("trial", true));
+
+        assertTrue(MixpanelFlutterHelper.jsonEquals(left, same));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(left, reordered));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(left, extraKey));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(new JSONArray().put(1), new JSONArray().put(1).put(2)));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(new JSONObject(), new JSONArray()));
+    }
+
+    @Test
+    public void jsonNullOnlyEqualsItself() throws Exception {
+        assertTrue(MixpanelFlutterHelper.jsonEquals(JSONObject.NULL, JSONObject.NULL));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(JSONObject.NULL, "null"));
+        assertFalse(MixpanelFlutterHelper.jsonEquals(JSONObject.NULL, 0));
+        assertFalse(MixpanelFlutterHelper.jsonEquals("value", JSONObject.NULL));
+    }
+
+    @Test
+    public void changedPropertiesKeepsNewAndDifferingValues() throws Exception {
+        JSONObject current = new JSONObject()
+                .put("count", 1L)
+                .put("plan", new JSONObject().put("seats", 3))
+                .put("name", "Ada")
+                .put("cleared", "x");
+        JSONObject properties = new JSONObject()
+                .put("count", 1)
+                .put("plan", new JSONObject().put("seats", 3.0))
+                .put("name", "Grace")
+                .put("cleared", JSONObject.NULL)
+                .put("added", new JSONArray().put(1));
+
+        JSONObject changed = MixpanelFlutterHelper.changedProperties(properties, current);
+
+        assertEquals(3, changed.length());
+        assertEquals("Grace", changed.get("name"));
+        assertEquals(JSONObject.NULL, changed.get("cleared"));
+        assertTrue(changed.has("added"));
+    }
+
+    @Test
+    public void missingPropertiesOnlyKeepsAbsentKeys() throws Exception {
+        JSONObject current = new JSONObject()
+                .put("name", "Ada")
+                .put("cleared", JSONObject.NULL);
+        JSONObject properties = new JSONObject()
+                .put("name", "Grace")
+                .put("cleared", "x")
+                .put("added", new JSONObject().put("nested", true));
+
+        JSONObject missing = MixpanelFlutterHelper.missingProperties(properties, current);
+
+        assertEquals(1, missing.length());
+        assertTrue(MixpanelFlutterHelper.jsonEquals(new JSONObject().put("nested", true), missing.get("added")));
+    }
+}
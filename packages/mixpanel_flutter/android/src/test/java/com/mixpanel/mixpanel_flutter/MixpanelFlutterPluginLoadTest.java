@@ -0,0 +1,374 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel.Result;
+
+import com.mixpanel.android.mpmetrics.FlagCompletionCallback;
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+import com.mixpanel.android.mpmetrics.MixpanelFlagVariant;
+
+/**
+ * Load-replay harness for the Android side of the method channel.
+ *
+ * Each scenario is a stream of codec-encoded method calls that is decoded
+ * and dispatched through {@link MixpanelFlutterPlugin#onMethodCall} against a
+ * stubbed {@link MixpanelAPI}, so the measured path is codec + handler +
+ * JSON conversion without any disk or network I/O. For every scenario the
+ * harness prints calls/sec, p99 latency and bytes allocated per call, and
+ * fails if allocation exceeds the scenario's budget.
+ *
+ * Budgets are recorded, not written by hand: {@value #BUDGETS_FILE} holds
+ * each scenario's measured bytes per call plus {@link #BUDGET_MARGIN}. A
+ * scenario with no recorded budget is skipped rather than judged against a
+ * guess. Re-record after a change that makes a path cheaper, or with a
+ * reason when one gets more expensive:
+ * <pre>
+ * ./gradlew :mixpanel_flutter:testDebugUnitTest --tests '*MixpanelFlutterPluginLoadTest' -Dmixpanel.recordBudgets=true
+ * </pre>
+ *
+ * Run from {@code example/android}:
+ * <pre>
+ * ./gradlew :mixpanel_flutter:testDebugUnitTest --tests '*MixpanelFlutterPluginLoadTest'
+ * </pre>
+ * Add {@code -Dmixpanel.replayFile=/path/to/calls.bin} to also replay a
+ * recorded stream. The file is a sequence of frames, each a big-endian
+ * int32 length followed by one method call encoded with
+ * {@link MixpanelMethodCodec}; it is reported but not budgeted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class MixpanelFlutterPluginLoadTest {
+
+    private static final String TOKEN = "load-test-token";
+    private static final int WARMUP_CALLS = 5_000;
+    private static final int MEASURED_CALLS = 50_000;
+
+    // Relative to the module directory, which Gradle runs unit tests in.
+    static final String BUDGETS_FILE = "src/test/resources/com/mixpanel/mixpanel_flutter/load-test-budgets.properties";
+    // Headroom over the recorded allocation for run-to-run noise.
+    private static final double BUDGET_MARGIN = 0.15;
+
+    private final MixpanelMethodCodec codec = MixpanelMethodCodec.instance;
+    private final CountingResult result = new CountingResult();
+    private MixpanelFlutterPlugin plugin;
+
+    @Before
+    public void setUp() {
+        // Measure the bridge itself, not Robolectric's trace bookkeeping.
+        MixpanelTrace.setEnabled(false);
+
+        MixpanelAPI.People people = mock(MixpanelAPI.People.class, withSettings().stubOnly());
+        MixpanelAPI.Flags flags = mock(MixpanelAPI.Flags.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            FlagCompletionCallback<MixpanelFlagVariant> callback = invocation.getArgument(2);
+            callback.onComplete(invocation.getArgument(1));
+            return null;
+        }).when(flags).getVariant(anyString(), any(), any());
+        MixpanelAPI mixpanel = mock(MixpanelAPI.class, withSettings().stubOnly());
+        when(mixpanel.getPeople()).thenReturn(people);
+        when(mixpanel.getFlags()).thenReturn(flags);
+        MixpanelFlutterPlugin.registerSharedInstance(TOKEN, mixpanel);
+
+        plugin = new MixpanelFlutterPlugin(RuntimeEnvironment.getApplication());
+        Map<String, Object> mixpanelProperties = new HashMap<>();
+        mixpanelProperties.put("$lib_version", "load-test");
+        mixpanelProperties.put("mp_lib", "flutter");
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("token", TOKEN);
+        arguments.put("mixpanelProperties", mixpanelProperties);
+        arguments.put("trackAutomaticEvents", false);
+        plugin.onMethodCall(decode(encode("initialize", arguments)), result);
+        assertEquals(0, result.errors);
+    }
+
+    @After
+    public void tearDown() {
+        MixpanelTrace.setEnabled(false);
+    }
+
+    @Test
+    public void track() {
+        List<ByteBuffer> stream = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            stream.add(encode("track", new TrackMessage("Screen Viewed " + i, sampleProperties(i))));
+        }
+        assertWithinBudget(replay("track", stream));
+    }
+
+    @Test
+    public void peopleSet() {
+        List<ByteBuffer> stream = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            Map<String, Object> arguments = new HashMap<>();
+            arguments.put("properties", sampleProperties(i));
+            stream.add(encode("set", arguments));
+        }
+        assertWithinBudget(replay("set", stream));
+    }
+
+    @Test
+    public void getVariant() {
+        List<ByteBuffer> stream = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Map<String, Object> fallback = new HashMap<>();
+            fallback.put("key", "control");
+            fallback.put("value", "control");
+            Map<String, Object> arguments = new HashMap<>();
+            arguments.put("flagName", "flag_" + i);
+            arguments.put("fallback", fallback);
+            stream.add(encode("getVariant", arguments));
+        }
+        assertWithinBudget(replay("getVariant", stream));
+    }
+
+    /**
+     * The reverse direction: what {@code EventBridgeSubscriber} does per
+     * native event, minus the main-thread hop.
+     */
+    @Test
+    public void eventBridge() throws Exception {
+        List<JSONObject> events = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            events.add(new JSONObject(sampleProperties(i)));
+        }
+        long[] latencies = new long[MEASURED_CALLS];
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            forwardEvent(events.get(i % events.size()));
+        }
+        long allocatedBefore = allocatedBytes();
+        long started = System.nanoTime();
+        long encodedBytes = 0;
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            long callStarted = System.nanoTime();
+            encodedBytes += forwardEvent(events.get(i % events.size()));
+            latencies[i] = System.nanoTime() - callStarted;
+        }
+        Report report = new Report("eventBridge", latencies, System.nanoTime() - started,
+                allocatedBytes() - allocatedBefore, encodedBytes);
+        report.print();
+        assertWithinBudget(report);
+    }
+
+    @Test
+    public void recordedStream() throws IOException {
+        String path = System.getProperty("mixpanel.replayFile", "");
+        if (path.isEmpty()) {
+            return;
+        }
+        List<ByteBuffer> stream = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+            while (in.available() > 0) {
+                byte[] frame = new byte[in.readInt()];
+                in.readFully(frame);
+                ByteBuffer buffer = ByteBuffer.allocateDirect(frame.length).order(ByteOrder.nativeOrder());
+                buffer.put(frame);
+                stream.add(buffer);
+            }
+        }
+        assertTrue("Replay file " + path + " contains no calls", !stream.isEmpty());
+        replay("replay:" + path, stream);
+    }
+
+    private Report replay(String name, List<ByteBuffer> stream) {
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            plugin.onMethodCall(decode(stream.get(i % stream.size())), result);
+        }
+        result.errors = 0;
+        long[] latencies = new long[MEASURED_CALLS];
+        long encodedBytes = 0;
+        long allocatedBefore = allocatedBytes();
+        long started = System.nanoTime();
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            ByteBuffer message = stream.get(i % stream.size());
+            encodedBytes += message.limit();
+            long callStarted = System.nanoTime();
+            plugin.onMethodCall(decode(message), result);
+            latencies[i] = System.nanoTime() - callStarted;
+        }
+        Report report = new Report(name, latencies, System.nanoTime() - started,
+                allocatedBytes() - allocatedBefore, encodedBytes);
+        report.print();
+        assertEquals(name + " replied with errors", 0, result.errors);
+        return report;
+    }
+
+    private int forwardEvent(JSONObject properties) throws Exception {
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("eventName", "Native Event");
+        arguments.put("properties", MixpanelFlutterHelper.toMap(properties));
+        // The pooled buffer's capacity is its size class; position is the
+        // encoded length.
+        return codec.encodeMethodCall(new MethodCall("onMixpanelEvent", arguments)).position();
+    }
+
+    private MethodCall decode(ByteBuffer message) {
+        message.rewind();
+        return codec.decodeMethodCall(message);
+    }
+
+    /**
+     * Encodes into a buffer of its own. The codec hands out a pooled buffer
+     * that the next encode on this thread overwrites, so streams keep a
+     * copy trimmed to the encoded length.
+     */
+    private ByteBuffer encode(String method, Object arguments) {
+        ByteBuffer pooled = codec.encodeMethodCall(new MethodCall(method, arguments));
+        pooled.flip();
+        ByteBuffer message = ByteBuffer.allocateDirect(pooled.remaining()).order(ByteOrder.nativeOrder());
+        message.put(pooled);
+        message.flip();
+        return message;
+    }
+
+    private static Map<String, Object> sampleProperties(int seed) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("screen", "screen_" + seed);
+        properties.put("index", seed);
+        properties.put("ratio", seed / 7.0);
+        properties.put("premium", seed % 2 == 0);
+        properties.put("tags", Arrays.asList("a", "b", "c"));
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("campaign", "spring");
+        nested.put("source", "push");
+        properties.put("utm", nested);
+        return properties;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+            if (allocationBean.isThreadAllocatedMemorySupported()) {
+                return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static void assertWithinBudget(Report report) {
+        // Allocation accounting isn't available on every JVM.
+        assumeTrue("No per-thread allocation counter on this JVM", report.bytesPerCall >= 0);
+        if (Boolean.getBoolean("mixpanel.recordBudgets")) {
+            recordBudget(report);
+            return;
+        }
+        String recorded = loadBudgets().getProperty(report.name);
+        assumeTrue("No recorded budget for " + report.name + "; run with -Dmixpanel.recordBudgets=true",
+                recorded != null);
+        long budget = Long.parseLong(recorded);
+        assertTrue(report.name + " allocates " + report.bytesPerCall + " B/call, budget is " + budget,
+                report.bytesPerCall <= budget);
+    }
+
+    private static Properties loadBudgets() {
+        Properties budgets = new Properties();
+        try (InputStream in = MixpanelFlutterPluginLoadTest.class.getResourceAsStream("load-test-budgets.properties")) {
+            if (in != null) {
+                budgets.load(in);
+            }
+        } catch (IOException e) {
+            throw new AssertionError("Unreadable " + BUDGETS_FILE, e);
+        }
+        return budgets;
+    }
+
+    private static synchronized void recordBudget(Report report) {
+        File file = new File(BUDGETS_FILE);
+        Properties budgets = new Properties();
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                budgets.load(in);
+            } catch (IOException e) {
+                throw new AssertionError("Unreadable " + file, e);
+            }
+        }
+        long budget = (long) Math.ceil(report.bytesPerCall * (1 + BUDGET_MARGIN));
+        budgets.setProperty(report.name, Long.toString(budget));
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+            budgets.store(out, "Allocation budgets in bytes per call: measured + "
+                    + Math.round(BUDGET_MARGIN * 100) + "%. Written by MixpanelFlutterPluginLoadTest.");
+        } catch (IOException e) {
+            throw new AssertionError("Could not write " + file, e);
+        }
+        System.out.printf("%-16s recorded budget %d B/call (measured %d)%n", report.name, budget, report.bytesPerCall);
+    }
+
+    private static final class Report {
+        final String name;
+        final double callsPerSecond;
+        final long p50Nanos;
+        final long p99Nanos;
+        final long bytesPerCall;
+        final long encodedBytesPerCall;
+
+        Report(String name, long[] latencies, long elapsedNanos, long allocatedBytes, long encodedBytes) {
+            Arrays.sort(latencies);
+            this.name = name;
+            this.callsPerSecond = latencies.length * 1e9 / elapsedNanos;
+            this.p50Nanos = latencies[latencies.length / 2];
+            this.p99Nanos = latencies[(int) (latencies.length * 0.99)];
+            this.bytesPerCall = allocatedBytes < 0 ? -1 : allocatedBytes / latencies.length;
+            this.encodedBytesPerCall = encodedBytes / latencies.length;
+        }
+
+        void print() {
+            System.out.printf("%-16s %10.0f calls/s  p50 %7.1f us  p99 %7.1f us  %6d B alloc/call  %5d B on wire/call%n",
+                    name, callsPerSecond, p50Nanos / 1e3, p99Nanos / 1e3, bytesPerCall, encodedBytesPerCall);
+        }
+    }
+
+    private static final class CountingResult implements Result {
+        int errors;
+
+        @Override
+        public void success(Object value) {
+        }
+
+        @Override
+        public void error(String errorCode, String errorMessage, Object errorDetails) {
+            errors++;
+        }
+
+        @Override
+        public void notImplemented() {
+            errors++;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.mixpanel.mixpanel_flutter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Robolectric because trimming reports through trace counters and the log.
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class MixpanelMessageCodecTest {
+
+    @After
+    public void tearDown() {
+        PayloadLimits.setCurrent(PayloadLimits.DEFAULT);
+    }
+
+    @Test
+    public void trackPropertiesKeepUriValues() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("link", URI.create("https://mixpanel.com/pricing?plan=pro"));
+        properties.put("links", Arrays.asList(URI.create("https://mixpanel.com")));
+
+        TrackMessage decoded = roundTrip(new TrackMessage("Link Opened", properties));
+
+        assertEquals(URI.create("https://mixpanel.com/pricing?plan=pro"), decoded.properties.get("link"));
+        assertEquals(Arrays.asList(URI.create("https://mixpanel.com")), decoded.properties.get("links"));
+    }
+
+    @Test
+    public void longValuesAreCutAtACharacterBoundary() {
+        PayloadLimits.setCurrent(new PayloadLimits(5, 16, 1024));
+        Map<String, Object> properties = new HashMap<>();
+        // 'é' is two bytes, so a 5 byte cut would land inside it.
+        properties.put("name", "abcdé");
+        properties.put("short", "abc");
+
+        TrackMessage decoded = roundTrip(new TrackMessage("Signed Up", properties));
+
+        assertEquals("abcd", decoded.properties.get("name"));
+        assertEquals("abc", decoded.properties.get("short"));
+    }
+
+    @Test
+    public void collectionsAreCappedAtMaxLength() {
+        PayloadLimits.setCurrent(new PayloadLimits(1024, 2, 1024));
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("a", 1);
+        nested.put("b", 2);
+        nested.put("c", 3);
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("tags", Arrays.asList("x", "y", "z"));
+        properties.put("nested", nested);
+
+        TrackMessage decoded = roundTrip(new TrackMessage("Tagged", properties));
+
+        assertEquals(Arrays.asList("x", "y"), decoded.properties.get("tags"));
+        Map<?, ?> decodedNested = (Map<?, ?>) decoded.properties.get("nested");
+        assertEquals(2, decodedNested.size());
+        assertFalse(decodedNested.containsKey("c"));
+    }
+
+    @Test
+    public void valuesPastTheEventLimitAreOmitted() {
+        PayloadLimits.setCurrent(new PayloadLimits(1024, 16, 40));
+        Map<String, Object> properties = new LinkedHashMap<>();
+        // Each key costs 8, so "first" leaves 22 bytes and "second" 14.
+        properties.put("first", "0123456789");
+        properties.put("second", "this value is longer than what is left");
+        long trimmedBefore = MixpanelMessageCodec.trimmedValueCount();
+
+        TrackMessage decoded = roundTrip(new TrackMessage("Big Event", properties));
+
+        assertEquals("0123456789", decoded.properties.get("first"));
+        assertFalse(decoded.properties.containsKey("second"));
+        assertEquals(trimmedBefore + 1, MixpanelMessageCodec.trimmedValueCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void trackMessageWithoutFieldListIsRejected() {
+        // TRACK_MESSAGE followed by a STRING tag where the field list belongs.
+        ByteBuffer message = ByteBuffer.wrap(new byte[] {(byte) 130, 7, 0}).order(ByteOrder.nativeOrder());
+
+        MixpanelMessageCodec.instance.decodeMessage(message);
+    }
+
+    @Test
+    public void manifestOverridesDefaultLimits() {
+        Application app = RuntimeEnvironment.getApplication();
+        Bundle metaData = new Bundle();
+        metaData.putInt("com.mixpanel.flutter.MaxPropertyValueBytes", 8192);
+        metaData.putInt("com.mixpanel.flutter.MaxEventBytes", 262144);
+        shadowOf(app.getPackageManager()).getInternalMutablePackageInfo(app.getPackageName())
+                .applicationInfo.metaData = metaData;
+
+        PayloadLimits.loadFromManifest(app);
+
+        PayloadLimits limits = PayloadLimits.current();
+        assertEquals(8192, limits.maxValueBytes);
+        assertEquals(PayloadLimits.DEFAULT.maxCollectionLength, limits.maxCollectionLength);
+        assertEquals(262144, limits.maxEventBytes);
+    }
+
+    private static TrackMessage roundTrip(TrackMessage message) {
+        ByteBuffer encoded = MixpanelMessageCodec.instance.encodeMessage(message);
+        encoded.rewind();
+        return (TrackMessage) MixpanelMessageCodec.instance.decodeMessage(encoded);
+    }
+}
@@ -1,6 +1,59 @@
 import 'dart:convert';
+import 'package:flutter/foundation.dart' show mapEquals;
 import 'package:flutter/services.dart';
 
+/// Arguments of the `track` method call, encoded positionally by
+/// [MixpanelMessageCodec] instead of as a string-keyed map.
+///
+/// Used internally by `Mixpanel.track`; the platform side decodes it into
+/// its own typed message.
+class MixpanelTrackMessage {
+  /// Creates a message for [eventName] with optional [properties], and
+  /// optionally the [time] and [sequence] captured when the event happened.
+  const MixpanelTrackMessage(this.eventName, this.properties,
+      {this.time, this.sequence});
+
+  /// The name of the event to send.
+  final String eventName;
+
+  /// The properties to include in this event, if any.
+  final Map<String, dynamic>? properties;
+
+  /// When the event happened, if captured by the caller. The platform side
+  /// records it as the event time instead of the time it is tracked.
+  final DateTime? time;
+
+  /// Client-side ordering of the event among others captured at [time].
+  final int? sequence;
+
+  // Two fields unless timing was captured, so untimed messages stay as small
+  // as before.
+  List<Object?> _encode() => time == null && sequence == null
+      ? <Object?>[eventName, properties]
+      : <Object?>[eventName, properties, time, sequence];
+
+  static MixpanelTrackMessage _decode(List<Object?> fields) =>
+      MixpanelTrackMessage(fields[0] as String,
+          (fields[1] as Map<Object?, Object?>?)?.cast<String, dynamic>(),
+          time: fields.length > 2 ? fields[2] as DateTime? : null,
+          sequence: fields.length > 3 ? fields[3] as int? : null);
+
+  @override
+  bool operator ==(Object other) =>
+      other is MixpanelTrackMessage &&
+      other.eventName == eventName &&
+      mapEquals(other.properties, properties) &&
+      other.time == time &&
+      other.sequence == sequence;
+
+  @override
+  int get hashCode => eventName.hashCode;
+
+  @override
+  String toString() =>
+      'MixpanelTrackMessage($eventName, $properties, $time, $sequence)';
+}
+
 /// The codec utilized to encode data back and forth between
 /// the Dart application and the native platform.
 class MixpanelMessageCodec extends StandardMessageCodec {
@@ -9,6 +62,7 @@ class MixpanelMessageCodec extends StandardMessageCodec {
 
   static const int _kDateTime = 128;
   static const int _kUri = 129;
+  static const int _kTrackMessage = 130;
 
   @override
   void writeValue(WriteBuffer buffer, dynamic value) {
@@ -20,6 +74,9 @@ class MixpanelMessageCodec extends StandardMessageCodec {
       final bytes = utf8.encoder.convert(value.toString());
       writeSize(buffer, bytes.length);
       buffer.putUint8List(bytes);
+    } else if (value is MixpanelTrackMessage) {
+      buffer.putUint8(_kTrackMessage);
+      writeValue(buffer, value._encode());
     } else {
       super.writeValue(buffer, value);
     }
@@ -34,6 +91,9 @@ class MixpanelMessageCodec extends StandardMessageCodec {
         final int length = readSize(buffer);
         final String string = utf8.decoder.convert(buffer.getUint8List(length));
         return Uri.parse(string);
+      case _kTrackMessage:
+        return MixpanelTrackMessage._decode(
+            readValue(buffer) as List<Object?>);
       default:
         return super.readValueOfType(type, buffer);
     }
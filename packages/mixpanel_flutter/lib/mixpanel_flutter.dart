@@ -1,9 +1,11 @@
 import 'dart:async';
 import 'dart:developer' as developer;
 import 'dart:io' show Platform;
+import 'dart:typed_data';
 
 import 'package:flutter/foundation.dart' show kIsWeb;
 import 'package:flutter/services.dart';
+import 'package:flutter/widgets.dart' show WidgetsBinding;
 import 'package:mixpanel_flutter/codec/mixpanel_message_codec.dart';
 import 'package:mixpanel_flutter/src/version.dart';
 import 'package:mixpanel_flutter_common/mixpanel_flutter_common.dart';
@@ -366,11 +368,36 @@ class FeatureFlagsConfig {
   /// the correct user identity.
   final bool prefetchFlags;
 
+  /// Whether [Mixpanel.init] should return the persisted variant set, so it
+  /// can be read synchronously from [FeatureFlags.persistedVariants] on the
+  /// first frame. Only applies to persistence-based [variantLookupPolicy]
+  /// values on mobile; init waits at most a few hundred milliseconds for
+  /// the set and completes without it otherwise.
+  final bool includePersistedVariants;
+
+  /// Whether to keep the flag subsystem out of app startup entirely.
+  /// When `true`, initialization only records the flag configuration: no
+  /// fetch and no read of persisted variants. Loading starts on the first
+  /// [FeatureFlags] call ([FeatureFlags.getVariant], [FeatureFlags.isEnabled],
+  /// [FeatureFlags.areFlagsReady], [FeatureFlags.getAllVariants], ...), or
+  /// [deferredLoadDelay] after the first frame, whichever comes first.
+  /// Implies [prefetchFlags] `false` and ignores [includePersistedVariants].
+  /// Mobile only.
+  final bool deferLoading;
+
+  /// With [deferLoading], how long after the first frame is rasterized to
+  /// start loading flags if nothing has asked for one yet. When `null`
+  /// (default), loading waits for the first flag call.
+  final Duration? deferredLoadDelay;
+
   const FeatureFlagsConfig({
     this.enabled = true,
     this.context = const {},
     this.variantLookupPolicy = const VariantLookupPolicy.networkOnly(),
     this.prefetchFlags = true,
+    this.includePersistedVariants = false,
+    this.deferLoading = false,
+    this.deferredLoadDelay,
   });
 
   /// Converts this config to a Map for serialization.
@@ -380,10 +407,78 @@ class FeatureFlagsConfig {
       'context': context,
       'variantLookupPolicy': variantLookupPolicy.toMap(),
       'prefetchFlags': prefetchFlags,
+      if (includePersistedVariants) 'includePersistedVariants': true,
+      if (deferLoading) 'deferLoading': true,
     };
   }
 }
 
+/// A single event passed to [Mixpanel.trackBatch].
+class MixpanelBatchEvent {
+  /// The name of the event to send.
+  final String eventName;
+
+  /// Optional key value pairs of the properties to include in this event.
+  final Map<String, dynamic>? properties;
+
+  /// When the event happened, if it is tracked later than that.
+  final DateTime? time;
+
+  /// Orders the event among others captured at the same [time].
+  final int? sequence;
+
+  const MixpanelBatchEvent(this.eventName,
+      {this.properties, this.time, this.sequence});
+}
+
+/// A single group profile update passed to [Mixpanel.groupBatch]. Each
+/// constructor matches the [MixpanelGroup] method of the same name.
+class MixpanelGroupOperation {
+  /// The property name associated with the group type.
+  final String groupKey;
+
+  /// The group the update applies to.
+  final dynamic groupID;
+
+  final String _op;
+  final String? _name;
+  final dynamic _value;
+
+  const MixpanelGroupOperation._(
+      this.groupKey, this.groupID, this._op, this._name, this._value);
+
+  /// Sets [properties] on the group, overwriting existing values.
+  const MixpanelGroupOperation.set(
+      String groupKey, dynamic groupID, Map<String, dynamic> properties)
+      : this._(groupKey, groupID, 'set', null, properties);
+
+  /// Sets [properties] on the group without overwriting existing values.
+  const MixpanelGroupOperation.setOnce(
+      String groupKey, dynamic groupID, Map<String, dynamic> properties)
+      : this._(groupKey, groupID, 'setOnce', null, properties);
+
+  /// Removes the property [name] from the group.
+  const MixpanelGroupOperation.unset(
+      String groupKey, dynamic groupID, String name)
+      : this._(groupKey, groupID, 'unset', name, null);
+
+  /// Removes [value] from the list-valued property [name].
+  const MixpanelGroupOperation.remove(
+      String groupKey, dynamic groupID, String name, dynamic value)
+      : this._(groupKey, groupID, 'remove', name, value);
+
+  /// Adds [values] to the list-valued property [name] if not yet present.
+  const MixpanelGroupOperation.union(
+      String groupKey, dynamic groupID, String name, List<dynamic> values)
+      : this._(groupKey, groupID, 'union', name, values);
+
+  /// Permanently deletes the group's profile.
+  const MixpanelGroupOperation.delete(String groupKey, dynamic groupID)
+      : this._(groupKey, groupID, 'delete', null, null);
+
+  bool get _needsName => _op == 'unset' || _op == 'remove' || _op == 'union';
+}
+
 /// The primary class for integrating Mixpanel with your app.
 class Mixpanel {
   // ignore: prefer_const_declarations
@@ -396,6 +491,13 @@ class Mixpanel {
     'mp_lib': 'flutter',
   };
 
+  // Upper bound on events per `trackBatch` channel message, so a large
+  // batch never turns into one unbounded buffer on either side.
+  static const int _maxEventsPerBatchMessage = 100;
+
+  // Same bound for `groupBatch` operations.
+  static const int _maxOperationsPerBatchMessage = 100;
+
   // Wires the reverse path from the native MixpanelEventBridge into the
   // Dart-side [MixpanelEventBridge]. Runs only when a consumer actually
   // reads [MixpanelEventBridge.events] — `init()` registers this as a
@@ -403,8 +505,28 @@ class Mixpanel {
   // that never subscribe never install the MethodCallHandler and never
   // issue start/stopEventBridge over the channel.
   static void _wireEventBridge() {
-    _channel.setMethodCallHandler((MethodCall call) async {
-      if (call.method == 'onMixpanelEvent') {
+    _installInboundHandler();
+    // ignore: invalid_use_of_internal_member
+    MixpanelEventBridge.setLifecycleCallbacks(
+      // Swallow channel errors (e.g. MissingPluginException during engine
+      // teardown) — the activate/deactivate signal is best-effort.
+      onActivate: () =>
+          _channel.invokeMethod<void>('startEventBridge').catchError((_) {}),
+      onDeactivate: () =>
+          _channel.invokeMethod<void>('stopEventBridge').catchError((_) {}),
+    );
+  }
+
+  // Installs the handler for every native→Dart push on the channel (event
+  // bridge, flag updates). Idempotent; only called once something
+  // subscribes to one of those pushes.
+  static void _installInboundHandler() {
+    _channel.setMethodCallHandler(_handleInboundCall);
+  }
+
+  static Future<dynamic> _handleInboundCall(MethodCall call) async {
+    switch (call.method) {
+      case 'onMixpanelEvent':
         final args = (call.arguments as Map?)?.cast<String, Object?>();
         final eventName = args?['eventName'] as String?;
         final properties =
@@ -419,22 +541,18 @@ class Mixpanel {
           );
         }
         return null;
-      }
-      // Surface unknown inbound methods loudly rather than silently
-      // returning null — protects future native→Dart push features added
-      // on this same shared channel from being swallowed here.
-      throw MissingPluginException(
-        'No handler for inbound method ${call.method} on mixpanel_flutter channel',
-      );
-    });
-    // ignore: invalid_use_of_internal_member
-    MixpanelEventBridge.setLifecycleCallbacks(
-      // Swallow channel errors (e.g. MissingPluginException during engine
-      // teardown) — the activate/deactivate signal is best-effort.
-      onActivate: () =>
-          _channel.invokeMethod<void>('startEventBridge').catchError((_) {}),
-      onDeactivate: () =>
-          _channel.invokeMethod<void>('stopEventBridge').catchError((_) {}),
+      case 'onFlagsReady':
+        FeatureFlags._flagsReady.add(null);
+        return null;
+      case 'onVariantsChanged':
+        FeatureFlags._notifyVariantsChanged(call.arguments);
+        return null;
+    }
+    // Surface unknown inbound methods loudly rather than silently
+    // returning null — protects future native→Dart push features added
+    // on this same shared channel from being swallowed here.
+    throw MissingPluginException(
+      'No handler for inbound method ${call.method} on mixpanel_flutter channel',
     );
   }
 
@@ -442,6 +560,7 @@ class Mixpanel {
   final People _people;
   final FeatureFlags _featureFlags;
   Autocapture? _autocapture;
+  MixpanelMetrics? _metrics;
 
   Mixpanel(String token)
       : _token = token,
@@ -489,8 +608,32 @@ class Mixpanel {
     if (serverURL != null && _MixpanelHelper.isValidString(serverURL)) {
       allProperties['serverURL'] = serverURL;
     }
-    await _channel.invokeMethod<void>('initialize', allProperties);
-    return Mixpanel(token);
+    final reply = await _channel.invokeMethod<dynamic>('initialize', allProperties);
+    final mixpanel = Mixpanel(token);
+    if (reply is Map) {
+      mixpanel._featureFlags._setPersistedVariants(reply['persistedVariants']);
+    }
+    final deferredLoadDelay = featureFlags?.deferredLoadDelay;
+    if (!kIsWeb &&
+        featureFlags != null &&
+        featureFlags.enabled &&
+        featureFlags.deferLoading &&
+        deferredLoadDelay != null) {
+      _scheduleDeferredFlagLoad(deferredLoadDelay);
+    }
+    return mixpanel;
+  }
+
+  /// Starts the deferred flag load [delay] after the first frame. The native
+  /// side ignores this if a flag call already started it.
+  static void _scheduleDeferredFlagLoad(Duration delay) {
+    WidgetsBinding.instance.waitUntilFirstFrameRasterized.then((_) {
+      Timer(delay, () {
+        _channel
+            .invokeMethod<void>('startDeferredFlagLoad')
+            .catchError((_) {});
+      });
+    });
   }
 
   /// Set the base URL used for Mixpanel API requests.
@@ -525,6 +668,40 @@ class Mixpanel {
     }
   }
 
+  /// Returns the most recent warnings the native bridge wrote to the
+  /// platform log, oldest first, for diagnostics screens and bug reports.
+  ///
+  /// Each entry has `time` (milliseconds since epoch), `key` (what went
+  /// wrong, e.g. `isEnabled.nonBoolean`), `message`, and `suppressed`: how
+  /// many repeats of the same key were dropped since the previous entry for
+  /// it. Repeats of a key are written at most once every 10 seconds.
+  ///
+  /// Only implemented on Android; other platforms return an empty list.
+  Future<List<Map<String, dynamic>>> getBridgeLog() async {
+    if (kIsWeb) {
+      return const [];
+    }
+    final entries = await _channel.invokeListMethod<Map>('getBridgeLog');
+    return [
+      for (final entry in entries ?? const <Map>[])
+        Map<String, dynamic>.from(entry),
+    ];
+  }
+
+  /// Stops the native bridge from writing warnings to the platform log and
+  /// to [getBridgeLog]. Warnings are written by default.
+  ///
+  /// Only implemented on Android; other platforms ignore it.
+  ///
+  /// * [muted] whether to mute bridge warnings
+  Future<void> setBridgeLogMuted(bool muted) async {
+    if (kIsWeb) {
+      return;
+    }
+    await _channel.invokeMethod<void>(
+        'setBridgeLogMuted', <String, dynamic>{'muted': muted});
+  }
+
   /// This controls whether to automatically send the client IP Address as part of event tracking.
   /// With an IP address, geo-location is possible down to neighborhoods within a city,
   /// although the Mixpanel Dashboard will just show you city level location specificity.
@@ -633,21 +810,118 @@ class Mixpanel {
   /// have a string name, and an optional set of name/value pairs that describe the properties of
   /// that event.
   ///
+  /// Events are timestamped when the native SDK tracks them. To track an
+  /// event some time after it happened (e.g. from your own queue), pass the
+  /// [time] it happened and a [sequence] from a counter of your own; they
+  /// are recorded as the event time and as `$mp_client_sequence`.
+  ///
   /// * [eventName] The name of the event to send
   /// * [properties] An optional map containing the key value pairs of the properties to include in this event.
+  /// * [time] When the event happened, if not now
+  /// * [sequence] Orders events captured within the same millisecond
   Future<void> track(
     String eventName, {
     Map<String, dynamic>? properties,
+    DateTime? time,
+    int? sequence,
   }) async {
     if (_MixpanelHelper.isValidString(eventName)) {
-      await _channel.invokeMethod<void>('track',
-          <String, dynamic>{'eventName': eventName, 'properties': _MixpanelHelper.ensureSerializableProperties(properties)});
+      // The web plugin receives calls without the custom codec, so it keeps
+      // the keyed map; native platforms get the positional message.
+      await _channel.invokeMethod<void>(
+          'track',
+          kIsWeb
+              ? <String, dynamic>{
+                  'eventName': eventName,
+                  'properties':
+                      _MixpanelHelper.ensureSerializableProperties(properties),
+                  if (time != null) 'time': time.millisecondsSinceEpoch,
+                  if (sequence != null) 'sequence': sequence,
+                }
+              : MixpanelTrackMessage(eventName, properties,
+                  time: time, sequence: sequence));
     } else {
       developer.log('`track` failed: eventName cannot be blank',
           name: 'Mixpanel');
     }
   }
 
+  /// Track several events with a single platform channel round trip per
+  /// chunk of events, instead of one per event.
+  ///
+  /// Events are tracked in list order, exactly as if [track] had been called
+  /// for each of them. Events with a blank name are skipped.
+  ///
+  /// * [events] The events to send.
+  Future<void> trackBatch(List<MixpanelBatchEvent> events) async {
+    final encoded = <List<dynamic>>[];
+    for (final event in events) {
+      if (_MixpanelHelper.isValidString(event.eventName)) {
+        encoded.add(<dynamic>[
+          event.eventName,
+          _MixpanelHelper.ensureSerializableProperties(event.properties),
+          if (event.time != null || event.sequence != null) ...[
+            // Web gets the channel's default codec, without DateTime.
+            kIsWeb ? event.time?.millisecondsSinceEpoch : event.time,
+            event.sequence,
+          ],
+        ]);
+      } else {
+        developer.log('`trackBatch` skipped event: eventName cannot be blank',
+            name: 'Mixpanel');
+      }
+    }
+    for (var start = 0;
+        start < encoded.length;
+        start += _maxEventsPerBatchMessage) {
+      final end = start + _maxEventsPerBatchMessage < encoded.length
+          ? start + _maxEventsPerBatchMessage
+          : encoded.length;
+      await _channel.invokeMethod<void>('trackBatch',
+          <String, dynamic>{'events': encoded.sublist(start, end)});
+    }
+  }
+
+  /// Apply several group profile updates with a single platform channel
+  /// round trip per chunk of operations, instead of one per update.
+  ///
+  /// Operations are applied in list order, exactly as if the matching
+  /// [MixpanelGroup] methods had been called. Operations with a blank group
+  /// key or property name are skipped.
+  ///
+  /// * [operations] The updates to apply.
+  Future<void> groupBatch(List<MixpanelGroupOperation> operations) async {
+    final encoded = <List<dynamic>>[];
+    for (final operation in operations) {
+      if (!_MixpanelHelper.isValidString(operation.groupKey) ||
+          (operation._needsName &&
+              !_MixpanelHelper.isValidString(operation._name ?? ''))) {
+        developer.log(
+            '`groupBatch` skipped operation: groupKey and name cannot be blank',
+            name: 'Mixpanel');
+        continue;
+      }
+      encoded.add(<dynamic>[
+        operation.groupKey,
+        _MixpanelHelper.ensureSerializableValue(operation.groupID),
+        operation._op,
+        operation._name,
+        _MixpanelHelper.ensureSerializableValue(operation._value),
+      ]);
+    }
+    for (var start = 0;
+        start < encoded.length;
+        start += _maxOperationsPerBatchMessage) {
+      final end = start + _maxOperationsPerBatchMessage < encoded.length
+          ? start + _maxOperationsPerBatchMessage
+          : encoded.length;
+      await _channel.invokeMethod<void>('groupBatch', <String, dynamic>{
+        'token': _token,
+        'operations': encoded.sublist(start, end),
+      });
+    }
+  }
+
   /// Returns a Mixpanel People object that can be used to set and increment
   /// People Analytics properties.
   ///
@@ -668,6 +942,13 @@ class Mixpanel {
     return _autocapture!;
   }
 
+  /// Returns a MixpanelMetrics object that aggregates high-frequency,
+  /// metrics-like events into periodic summary events.
+  MixpanelMetrics get metrics {
+    _metrics ??= MixpanelMetrics._(this);
+    return _metrics!;
+  }
+
   ///  Track an event with specific groups.
   ///
   ///  Every call to track eventually results in a data point sent to Mixpanel. These data points
@@ -893,6 +1174,10 @@ class Mixpanel {
   /// are sent to Mixpanel when your application is shut down, you will
   /// need to call flush() to let the Mixpanel library know it should
   /// send all remaining messages to the server.
+  ///
+  /// On Android, flushes requested in quick succession are coalesced: calls
+  /// made while a flush is in flight are folded into a single follow-up
+  /// flush, and the returned [Future] completes once that flush is issued.
   Future<void> flush() async {
     await _channel.invokeMethod('flush');
   }
@@ -1227,9 +1512,92 @@ class FeatureFlags {
           'mixpanel_flutter', StandardMethodCodec(MixpanelMessageCodec()));
 
   final String _token;
+  Map<String, MixpanelFlagVariant> _persistedVariants = const {};
+  DateTime? _persistedAt;
+
+  // Native pushes, shared by every instance since the channel is. The
+  // native side only sends them while one of these has a listener.
+  static final StreamController<void> _flagsReady =
+      StreamController<void>.broadcast(
+          onListen: _updateSubscription, onCancel: _updateSubscription);
+  static final StreamController<Map<String, MixpanelFlagVariant?>>
+      _variantsChanged =
+      StreamController<Map<String, MixpanelFlagVariant?>>.broadcast(
+          onListen: _updateSubscription, onCancel: _updateSubscription);
+  static bool _subscribed = false;
 
   FeatureFlags(String token) : _token = token;
 
+  /// Fires when feature flags become ready, so flag-gated UI can update
+  /// without polling [areFlagsReady]. Fires again if a later [Mixpanel.init]
+  /// replaces the instance.
+  ///
+  /// Not available on web, where this stream never fires.
+  Stream<void> get onFlagsReady => _flagsReady.stream;
+
+  /// Fires with the flags whose variant changed: every loaded variant right
+  /// after [onFlagsReady], then only the differences whenever a flag load or
+  /// context update completes. A null value means the flag went away.
+  ///
+  /// Not available on web, where this stream never fires.
+  Stream<Map<String, MixpanelFlagVariant?>> get onVariantsChanged =>
+      _variantsChanged.stream;
+
+  static void _updateSubscription() {
+    if (kIsWeb) return;
+    final wanted = _flagsReady.hasListener || _variantsChanged.hasListener;
+    if (wanted == _subscribed) return;
+    _subscribed = wanted;
+    if (wanted) {
+      Mixpanel._installInboundHandler();
+    }
+    // Best-effort, like the event bridge lifecycle calls.
+    _channel
+        .invokeMethod<void>(wanted ? 'startFlagUpdates' : 'stopFlagUpdates')
+        .catchError((_) {});
+  }
+
+  static void _notifyVariantsChanged(Object? arguments) {
+    if (arguments is! Map) return;
+    final changed = <String, MixpanelFlagVariant?>{};
+    arguments.forEach((key, value) {
+      if (key is String) {
+        changed[key] = value is Map ? MixpanelFlagVariant.fromMap(value) : null;
+      }
+    });
+    if (changed.isNotEmpty) {
+      _variantsChanged.add(changed);
+    }
+  }
+
+  /// The persisted variant set returned by [Mixpanel.init] when
+  /// [FeatureFlagsConfig.includePersistedVariants] is set, keyed by flag
+  /// name. Empty if that option is off or nothing was persisted.
+  ///
+  /// This is a snapshot taken at init and never refreshed; use [getVariant]
+  /// for up-to-date values and exposure tracking.
+  Map<String, MixpanelFlagVariant> get persistedVariants => _persistedVariants;
+
+  /// When [persistedVariants] was written to disk, or null if it is empty.
+  DateTime? get persistedAt => _persistedAt;
+
+  void _setPersistedVariants(Object? persisted) {
+    if (persisted is! Map) return;
+    final variants = persisted['variants'];
+    if (variants is! Map) return;
+    final decoded = <String, MixpanelFlagVariant>{};
+    variants.forEach((key, value) {
+      if (key is String && value is Map) {
+        decoded[key] = MixpanelFlagVariant.fromMap(value);
+      }
+    });
+    _persistedVariants = Map.unmodifiable(decoded);
+    final persistedAtMillis = persisted['persistedAtMillis'];
+    if (persistedAtMillis is int) {
+      _persistedAt = DateTime.fromMillisecondsSinceEpoch(persistedAtMillis);
+    }
+  }
+
   /// Check if feature flags have been loaded and are ready to use.
   ///
   /// Returns true if flags are loaded and ready, false otherwise.
@@ -1317,6 +1685,11 @@ class FeatureFlags {
   /// After setting the new context, the SDK automatically re-fetches flags
   /// from Mixpanel servers. The returned [Future] completes when the
   /// re-fetch is done.
+  ///
+  /// On Android, updates made in quick succession are coalesced: only the
+  /// latest context is applied, and every pending [Future] completes when
+  /// that single re-fetch is done, or fails with a [PlatformException] if it
+  /// fails.
   Future<void> updateContext(Map<String, dynamic> context,
       {Map<String, dynamic>? options}) async {
     await _channel.invokeMethod<void>('updateFlagsContext', <String, dynamic>{
@@ -1424,6 +1797,230 @@ class Autocapture {
           name: 'Mixpanel');
     }
   }
+
+  /// Groups screen views and leaves into screen sessions on the native side,
+  /// so rapid navigation (redirects, tab bounces) doesn't upload a burst of
+  /// near-empty screen events.
+  ///
+  /// A screen view is only sent once the screen has been showing for
+  /// [minimumDuration]; a screen left sooner sends neither its view nor its
+  /// leave. The leave event of a sent screen carries the time spent on it, in
+  /// seconds, as `$duration`. Pass `null` to send every call as-is again,
+  /// which is the default.
+  ///
+  /// Only implemented on Android; other platforms ignore it.
+  ///
+  /// * [minimumDuration] How long a screen must show before its view is sent
+  Future<void> setMinimumScreenDuration(Duration? minimumDuration) async {
+    if (kIsWeb) {
+      return;
+    }
+    await _channel.invokeMethod<void>(
+        'setMinimumScreenDuration', <String, dynamic>{
+      'minimumMillis': minimumDuration?.inMilliseconds,
+    });
+  }
+}
+
+/// Aggregates high-frequency, metrics-like events (impression counts, API
+/// latency, frame times) in memory and tracks one summary event per series
+/// instead of one event per occurrence.
+///
+/// A series is an event name, an aggregation kind and a set of dimension
+/// properties; recording into a series does not touch the platform channel.
+/// Every [flushInterval] after the first value, or as soon as [maxSeries]
+/// series are open, each series is tracked through [Mixpanel.trackBatch] as
+/// an event with the series' name and dimensions plus these properties,
+/// prefixed with `metric_` so they stand apart from the dimensions (a
+/// dimension with the same name is overwritten):
+///
+/// * `metric_aggregation`: `count`, `sum` or `histogram`
+/// * `metric_count`: number of values recorded
+/// * `metric_sum`, `metric_min`, `metric_max`: for sums and histograms
+/// * `metric_bucket_bounds`, `metric_bucket_counts`: for histograms; a value
+///   falls in the first bucket whose bound is at least the value, and the
+///   last count is for values above every bound
+/// * `metric_window_seconds`: how long the series was aggregated
+///
+/// Values not yet flushed are lost if the app is killed; call [flush] when
+/// the app goes to the background.
+///
+/// Access via `mixpanel.metrics`.
+class MixpanelMetrics {
+  MixpanelMetrics._(this._mixpanel);
+
+  final Mixpanel _mixpanel;
+  final Map<String, _MetricSeries> _series = {};
+  Timer? _timer;
+  DateTime? _windowStart;
+
+  /// How long values are aggregated before summaries are tracked.
+  Duration flushInterval = const Duration(seconds: 60);
+
+  /// How many series may be open before summaries are tracked early.
+  int maxSeries = 256;
+
+  /// Counts an occurrence of [eventName], [by] times.
+  ///
+  /// * [eventName] The name of the summary event
+  /// * [by] How many occurrences to add
+  /// * [dimensions] Properties that split the count into separate series
+  void count(String eventName,
+      {int by = 1, Map<String, Object?>? dimensions}) {
+    _seriesFor(eventName, _MetricKind.count, dimensions, null)
+        ?.add(by.toDouble(), by);
+  }
+
+  /// Adds [value] to the running sum of [eventName].
+  ///
+  /// * [eventName] The name of the summary event
+  /// * [value] The value to add
+  /// * [dimensions] Properties that split the sum into separate series
+  void sum(String eventName, num value, {Map<String, Object?>? dimensions}) {
+    _seriesFor(eventName, _MetricKind.sum, dimensions, null)
+        ?.add(value.toDouble(), 1);
+  }
+
+  /// Records [value] into a histogram of [eventName] with fixed [buckets].
+  ///
+  /// The bounds a series was created with are kept for the whole window;
+  /// later calls with different [buckets] record into the same buckets.
+  ///
+  /// * [eventName] The name of the summary event
+  /// * [value] The value to record
+  /// * [buckets] Upper bounds of the buckets
+  /// * [dimensions] Properties that split the histogram into separate series
+  void record(String eventName, num value,
+      {required List<num> buckets, Map<String, Object?>? dimensions}) {
+    _seriesFor(eventName, _MetricKind.histogram, dimensions, buckets)
+        ?.add(value.toDouble(), 1);
+  }
+
+  /// Tracks a summary event for every open series now and starts a new
+  /// window.
+  Future<void> flush() async {
+    _timer?.cancel();
+    _timer = null;
+    final windowStart = _windowStart;
+    if (_series.isEmpty || windowStart == null) return;
+    final windowSeconds =
+        DateTime.now().difference(windowStart).inMilliseconds / 1000.0;
+    final events = [
+      for (final series in _series.values)
+        MixpanelBatchEvent(series.eventName,
+            properties: series.toProperties(windowSeconds)),
+    ];
+    _series.clear();
+    _windowStart = null;
+    await _mixpanel.trackBatch(events);
+  }
+
+  _MetricSeries? _seriesFor(String eventName, _MetricKind kind,
+      Map<String, Object?>? dimensions, List<num>? buckets) {
+    if (!_MixpanelHelper.isValidString(eventName)) {
+      developer.log('`metrics` failed: eventName cannot be blank',
+          name: 'Mixpanel');
+      return null;
+    }
+    final key = _seriesKey(eventName, kind, dimensions);
+    final existing = _series[key];
+    if (existing != null) return existing;
+    if (_series.length >= maxSeries) {
+      _flushInBackground();
+    }
+    final series = _MetricSeries(eventName, kind, dimensions, buckets);
+    _series[key] = series;
+    _windowStart ??= DateTime.now();
+    _timer ??= Timer(flushInterval, _flushInBackground);
+    return series;
+  }
+
+  void _flushInBackground() {
+    flush().catchError((Object error) {
+      developer.log('`metrics` flush failed: $error', name: 'Mixpanel');
+    });
+  }
+
+  static String _seriesKey(String eventName, _MetricKind kind,
+      Map<String, Object?>? dimensions) {
+    if (dimensions == null || dimensions.isEmpty) {
+      return '${kind.index}\u0000$eventName';
+    }
+    final names = dimensions.keys.toList()..sort();
+    final key = StringBuffer('${kind.index}\u0000$eventName');
+    for (final name in names) {
+      key
+        ..write('\u0000')
+        ..write(name)
+        ..write('=')
+        ..write(dimensions[name]);
+    }
+    return key.toString();
+  }
+}
+
+enum _MetricKind { count, sum, histogram }
+
+const _metricKindNames = {
+  _MetricKind.count: 'count',
+  _MetricKind.sum: 'sum',
+  _MetricKind.histogram: 'histogram',
+};
+
+class _MetricSeries {
+  _MetricSeries(this.eventName, this.kind, Map<String, Object?>? dimensions,
+      List<num>? buckets)
+      : dimensions = dimensions == null ? null : Map.of(dimensions),
+        bounds = buckets == null
+            ? null
+            : (Float64List.fromList(
+                [for (final bound in buckets) bound.toDouble()])
+              ..sort()),
+        bucketCounts =
+            buckets == null ? null : Uint32List(buckets.length + 1);
+
+  final String eventName;
+  final _MetricKind kind;
+  final Map<String, Object?>? dimensions;
+  final Float64List? bounds;
+  final Uint32List? bucketCounts;
+  int count = 0;
+  double sum = 0;
+  double min = double.infinity;
+  double max = double.negativeInfinity;
+
+  void add(double value, int occurrences) {
+    count += occurrences;
+    sum += value;
+    if (value < min) min = value;
+    if (value > max) max = value;
+    final bounds = this.bounds;
+    if (bounds != null) {
+      var bucket = 0;
+      while (bucket < bounds.length && value > bounds[bucket]) {
+        bucket++;
+      }
+      bucketCounts![bucket]++;
+    }
+  }
+
+  Map<String, dynamic> toProperties(double windowSeconds) {
+    return <String, dynamic>{
+      ...?dimensions,
+      'metric_aggregation': _metricKindNames[kind]!,
+      'metric_count': count,
+      if (kind != _MetricKind.count) ...{
+        'metric_sum': sum,
+        'metric_min': min,
+        'metric_max': max,
+      },
+      if (bounds != null) ...{
+        'metric_bucket_bounds': bounds!.toList(),
+        'metric_bucket_counts': bucketCounts!.toList(),
+      },
+      'metric_window_seconds': windowSeconds,
+    };
+  }
 }
 
 class _MixpanelHelper {
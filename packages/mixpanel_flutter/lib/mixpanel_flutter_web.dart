@@ -115,6 +115,9 @@ class MixpanelFlutterPlugin {
       case 'track':
         handleTrack(call);
         break;
+      case 'trackBatch':
+        handleTrackBatch(call);
+        break;
       case "trackWithGroups":
         handleTrackWithGroups(call);
         break;
@@ -203,6 +206,9 @@ class MixpanelFlutterPlugin {
         return handleLoadFlags();
       case 'getAllVariants':
         return handleGetAllVariants();
+      case 'groupBatch':
+        handleGroupBatch(call);
+        break;
       case 'trackScreenView':
         handleTrackScreenView(call);
         break;
@@ -266,11 +272,35 @@ class MixpanelFlutterPlugin {
     dynamic properties = args['properties'];
     Map<String, dynamic> props = {
       ..._mixpanelProperties,
-      ...(properties ?? {})
+      ...(properties ?? {}),
+      ..._clientTiming(args['time'], args['sequence']),
     };
     track(eventName, safeJsify(props));
   }
 
+  void handleTrackBatch(MethodCall call) {
+    Map<Object?, Object?> args = call.arguments as Map<Object?, Object?>;
+    List<Object?> events = args['events'] as List<Object?>;
+    for (final event in events) {
+      List<Object?> fields = event as List<Object?>;
+      dynamic properties = fields[1];
+      Map<String, dynamic> props = {
+        ..._mixpanelProperties,
+        ...(properties ?? {}),
+        if (fields.length > 3) ..._clientTiming(fields[2], fields[3]),
+      };
+      track(fields[0] as String, safeJsify(props));
+    }
+  }
+
+  /// Event time and ordering captured by the caller, as event properties.
+  Map<String, dynamic> _clientTiming(Object? timeMillis, Object? sequence) {
+    return {
+      if (timeMillis != null) 'time': timeMillis,
+      if (sequence != null) '\$mp_client_sequence': sequence,
+    };
+  }
+
   void handleAlias(MethodCall call) {
     Map<Object?, Object?> args = call.arguments as Map<Object?, Object?>;
     String aliasName = args['alias'] as String;
@@ -465,6 +495,39 @@ class MixpanelFlutterPlugin {
         .union(name, value is JSArray ? value : <JSAny>[].toJS);
   }
 
+  void handleGroupBatch(MethodCall call) {
+    Map<Object?, Object?> args = call.arguments as Map<Object?, Object?>;
+    List<Object?> operations = args['operations'] as List<Object?>;
+    for (final operation in operations) {
+      // [groupKey, groupID, op, name, value]
+      List<Object?> fields = operation as List<Object?>;
+      final group = get_group(fields[0] as String, safeJsify(fields[1]));
+      final name = fields[3] as String?;
+      final value = fields[4];
+      switch (fields[2]) {
+        case 'set':
+          group.set(safeJsify(value));
+          break;
+        case 'setOnce':
+          (value as Map? ?? {}).forEach((key, v) {
+            group.set_once(key as String, safeJsify(v));
+          });
+          break;
+        case 'unset':
+          group.unset(name!);
+          break;
+        case 'remove':
+          group.remove(name!, safeJsify(value));
+          break;
+        case 'union':
+          final values = safeJsify(value);
+          group.union(name!, values is JSArray ? values : <JSAny>[].toJS);
+          break;
+        // The JS SDK can't delete group profiles.
+      }
+    }
+  }
+
   bool handleHasOptedOutTracking() {
     return has_opted_out_tracking();
   }
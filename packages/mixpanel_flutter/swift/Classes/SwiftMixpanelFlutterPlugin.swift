@@ -28,6 +28,22 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
     // `startEventBridge` and cancelled by `stopEventBridge` / `deinit`.
     private var eventBridgeTask: Task<Void, Never>?
 
+    // FeatureFlagsConfig.deferLoading: initialize skips the flag prefetch
+    // and the first flag call (or Dart's post-first-frame trigger) starts it.
+    private var flagLoadDeferred = false
+    private var deferredFlagLoadStarted = false
+
+    // Flag updates pushed to Dart once it sends `startFlagUpdates`. The SDK
+    // has no readiness callback, so readiness is polled here with backoff;
+    // variants are diffed against what was last pushed. Main thread only.
+    private var flagsEnabled = false
+    private var flagUpdatesActive = false
+    private var flagsReadyPushed = false
+    private var pushedVariants = [String: [String: Any]]()
+    private var flagPollGeneration = 0
+    private var flagPollDelay: TimeInterval = 0.05
+    private var flagPollStartedAt = Date()
+
     public static func register(with registrar: FlutterPluginRegistrar) {
         let readWriter = MixpanelReaderWriter()
         let codec = FlutterStandardMethodCodec(readerWriter: readWriter)
@@ -57,6 +73,7 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
     public func detachFromEngine(for registrar: FlutterPluginRegistrar) {
         eventBridgeTask?.cancel()
         eventBridgeTask = nil
+        flagUpdatesActive = false
         channel = nil
     }
 
@@ -85,6 +102,85 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
         eventBridgeTask = nil
         result(nil)
     }
+
+    private func handleStartFlagUpdates(_ result: @escaping FlutterResult) {
+        flagUpdatesActive = true
+        watchFlags()
+        result(nil)
+    }
+
+    private func handleStopFlagUpdates(_ result: @escaping FlutterResult) {
+        flagUpdatesActive = false
+        flagPollGeneration += 1
+        result(nil)
+    }
+
+    /// Reports readiness and variants of the current instance afresh.
+    private func watchFlags() {
+        flagPollGeneration += 1
+        flagsReadyPushed = false
+        pushedVariants = [:]
+        guard flagUpdatesActive, flagsEnabled, instance != nil else { return }
+        flagPollDelay = 0.05
+        flagPollStartedAt = Date()
+        pollFlagsReady(generation: flagPollGeneration)
+    }
+
+    private func pollFlagsReady(generation: Int) {
+        guard flagUpdatesActive, generation == flagPollGeneration, !flagsReadyPushed,
+              let instance = instance else { return }
+        if instance.flags.areFlagsReady() {
+            flagsReadyPushed = true
+            channel?.invokeMethod("onFlagsReady", arguments: nil)
+            refreshFlagUpdates()
+            return
+        }
+        // Give up after a minute; a later loadFlags or context update
+        // checks again.
+        if Date().timeIntervalSince(flagPollStartedAt) >= 60 { return }
+        let delay = flagPollDelay
+        flagPollDelay = min(flagPollDelay * 2, 1)
+        DispatchQueue.main.asyncAfter(deadline: .now() + delay) { [weak self] in
+            self?.pollFlagsReady(generation: generation)
+        }
+    }
+
+    /// Pushes the variants that changed since the last push, with null for
+    /// flags that went away. Callable from any thread.
+    private func refreshFlagUpdates() {
+        DispatchQueue.main.async { [weak self] in
+            guard let self = self, self.flagUpdatesActive, let instance = self.instance else { return }
+            if !self.flagsReadyPushed {
+                self.pollFlagsReady(generation: self.flagPollGeneration)
+                return
+            }
+            let generation = self.flagPollGeneration
+            instance.flags.getAllVariants { variants in
+                var current = [String: [String: Any]]()
+                for (key, variant) in variants {
+                    current[key] = self.flagVariantToMap(variant)
+                }
+                DispatchQueue.main.async {
+                    guard self.flagUpdatesActive, generation == self.flagPollGeneration else { return }
+                    var changed = [String: Any]()
+                    for (key, map) in current {
+                        if let previous = self.pushedVariants[key],
+                           NSDictionary(dictionary: previous).isEqual(to: map) {
+                            continue
+                        }
+                        changed[key] = map
+                    }
+                    for key in self.pushedVariants.keys where current[key] == nil {
+                        changed[key] = NSNull()
+                    }
+                    self.pushedVariants = current
+                    if !changed.isEmpty {
+                        self.channel?.invokeMethod("onVariantsChanged", arguments: changed)
+                    }
+                }
+            }
+        }
+    }
     
     public func handle(_ call: FlutterMethodCall, result: @escaping FlutterResult) {
         switch call.method {
@@ -118,6 +214,9 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
         case "track":
             handleTrack(call, result: result)
             break
+        case "trackBatch":
+            handleTrackBatch(call, result: result)
+            break
         case "trackWithGroups":
             handleTrackWithGroups(call, result: result)
             break
@@ -232,18 +331,42 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
         case "getAllVariants":
             handleGetAllVariants(call, result: result)
             break
+        case "startDeferredFlagLoad":
+            startDeferredFlagLoad()
+            result(nil)
+            break
         case "trackScreenView":
             handleTrackScreenView(call, result: result)
             break
         case "trackScreenLeave":
             handleTrackScreenLeave(call, result: result)
             break
+        case "setMinimumScreenDuration":
+            // Screen sessions are only tracked natively on Android.
+            result(nil)
+            break
+        case "getBridgeLog":
+            // The bridge log is only kept on Android.
+            result([])
+            break
+        case "setBridgeLogMuted":
+            result(nil)
+            break
         case "startEventBridge":
             handleStartEventBridge(result)
             break
         case "stopEventBridge":
             handleStopEventBridge(result)
             break
+        case "startFlagUpdates":
+            handleStartFlagUpdates(result)
+            break
+        case "stopFlagUpdates":
+            handleStopFlagUpdates(result)
+            break
+        case "groupBatch":
+            handleGroupBatch(call, result: result)
+            break
         default:
             result(FlutterMethodNotImplemented)
         }
@@ -266,11 +389,19 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
 
         // Check for feature flags configuration
         var featureFlagOptions: FeatureFlagOptions? = nil
+        var includePersistedVariants = false
+        var deferLoading = false
         if let featureFlags = arguments["featureFlags"] as? [String: Any],
            let enabled = featureFlags["enabled"] as? Bool, enabled {
             let context = featureFlags["context"] as? [String: Any] ?? [:]
             let policy = parseVariantLookupPolicy(featureFlags["variantLookupPolicy"] as? [String: Any])
-            let prefetchFlags = featureFlags["prefetchFlags"] as? Bool ?? true
+            deferLoading = featureFlags["deferLoading"] as? Bool ?? false
+            // Deferred loading keeps the fetch and the persisted-set read out of startup
+            let prefetchFlags = !deferLoading && (featureFlags["prefetchFlags"] as? Bool ?? true)
+            let policyKind = (featureFlags["variantLookupPolicy"] as? [String: Any])?["policy"] as? String
+            includePersistedVariants = !deferLoading
+                && featureFlags["includePersistedVariants"] as? Bool ?? false
+                && (policyKind == "persistenceUntilNetworkSuccess" || policyKind == "networkFirst")
             featureFlagOptions = FeatureFlagOptions(
                 enabled: true,
                 context: context,
@@ -290,8 +421,52 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
             featureFlagOptions: featureFlagOptions
         )
         instance = Mixpanel.initialize(options: options)
+        flagLoadDeferred = deferLoading
+        deferredFlagLoadStarted = false
+        flagsEnabled = featureFlagOptions != nil
+        watchFlags()
 
-        result(nil)
+        if includePersistedVariants, let instance = instance {
+            replyWithPersistedVariants(instance, result: result)
+        } else {
+            result(nil)
+        }
+    }
+
+    // Upper bound on how long initialize waits for the persisted variant set.
+    // With nothing on disk the native lookup may wait on the network, which
+    // must not hold up init.
+    private let persistedVariantsTimeout: TimeInterval = 0.25
+
+    /// Completes initialize with the persisted variant set so Dart can render
+    /// flag-gated UI on the first frame. Replies without it on timeout.
+    private func replyWithPersistedVariants(_ instance: MixpanelInstance, result: @escaping FlutterResult) {
+        var replied = false
+        let reply: ([String: Any]?) -> Void = { persisted in
+            if replied { return }
+            replied = true
+            result(["persistedVariants": persisted ?? NSNull()])
+        }
+        DispatchQueue.main.asyncAfter(deadline: .now() + persistedVariantsTimeout) {
+            reply(nil)
+        }
+        instance.flags.getAllVariants { variants in
+            var out = [String: [String: Any]]()
+            var persistedAtMillis: Int64 = 0
+            for (key, variant) in variants {
+                if let source = variant.source as MixpanelFlagVariant.Source?,
+                   case .persistence(let persistedAt) = source {
+                    persistedAtMillis = max(persistedAtMillis, Int64(persistedAt.timeIntervalSince1970 * 1000))
+                    out[key] = self.flagVariantToMap(variant)
+                }
+            }
+            let persisted: [String: Any]? = out.isEmpty
+                ? nil
+                : ["persistedAtMillis": persistedAtMillis, "variants": out]
+            DispatchQueue.main.async {
+                reply(persisted)
+            }
+        }
     }
     
     private func handleSetServerURL(_ call: FlutterMethodCall, result: @escaping FlutterResult) {
@@ -348,11 +523,40 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
         let arguments = call.arguments as? [String: Any] ?? [String: Any]()
         let event = arguments["eventName"] as! String
         let properties = arguments["properties"] as? [String: Any]
-        let mpProperties = MixpanelTypeHandler.mixpanelProperties(properties: properties, mixpanelProperties: mixpanelProperties)
+        var mpProperties = MixpanelTypeHandler.mixpanelProperties(properties: properties, mixpanelProperties: mixpanelProperties)
+        putClientTiming(&mpProperties, time: arguments["time"], sequence: arguments["sequence"])
         instance?.track(event: event, properties: mpProperties)
         result(nil)
     }
     
+    private func handleTrackBatch(_ call: FlutterMethodCall, result: @escaping FlutterResult) {
+        let arguments = call.arguments as? [String: Any] ?? [String: Any]()
+        let events = arguments["events"] as? [[Any]] ?? []
+        for fields in events {
+            guard let event = fields.first as? String else {
+                continue
+            }
+            let properties = fields.count > 1 ? fields[1] as? [String: Any] : nil
+            var mpProperties = MixpanelTypeHandler.mixpanelProperties(properties: properties, mixpanelProperties: mixpanelProperties)
+            if fields.count > 3 {
+                putClientTiming(&mpProperties, time: fields[2], sequence: fields[3])
+            }
+            instance?.track(event: event, properties: mpProperties)
+        }
+        result(nil)
+    }
+
+    /// Records the time an event happened and its client-side sequence. The
+    /// SDK lets a `time` property (in milliseconds) override its own stamp.
+    private func putClientTiming(_ properties: inout Properties, time: Any?, sequence: Any?) {
+        if let time = time as? Date {
+            properties["time"] = Int(time.timeIntervalSince1970 * 1000)
+        }
+        if let sequence = sequence as? NSNumber {
+            properties["$mp_client_sequence"] = sequence.intValue
+        }
+    }
+
     private func handleTrackWithGroups(_ call: FlutterMethodCall, result: @escaping FlutterResult) {
         let arguments = call.arguments as? [String: Any] ?? [String: Any]()
         let event = arguments["eventName"] as! String
@@ -666,6 +870,47 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
         result(nil)
     }
 
+    private func handleGroupBatch(_ call: FlutterMethodCall, result: @escaping FlutterResult) {
+        let arguments = call.arguments as? [String: Any] ?? [String: Any]()
+        guard let token = arguments["token"] as? String else {
+            result(nil)
+            return
+        }
+        let operations = arguments["operations"] as? [[Any]] ?? []
+        for fields in operations {
+            // [groupKey, groupID, op, name, value]
+            guard fields.count == 5, let groupKey = fields[0] as? String, let op = fields[2] as? String,
+                  let group = mixpanelGroup(token, groupKey: groupKey, groupID: fields[1]) else {
+                continue
+            }
+            let name = fields[3] as? String
+            let value = fields[4]
+            switch op {
+            case "set":
+                group.set(properties: MixpanelTypeHandler.mixpanelProperties(properties: value as? [String: Any]))
+            case "setOnce":
+                group.setOnce(properties: MixpanelTypeHandler.mixpanelProperties(properties: value as? [String: Any]))
+            case "unset":
+                if let name = name {
+                    group.unset(property: name)
+                }
+            case "remove":
+                if let name = name, let mixpanelTypeValue = MixpanelTypeHandler.mixpanelTypeValue(value) {
+                    group.remove(key: name, value: mixpanelTypeValue)
+                }
+            case "union":
+                if let name = name, let values = value as? [Any] {
+                    group.union(key: name, values: values.compactMap { MixpanelTypeHandler.mixpanelTypeValue($0) })
+                }
+            case "delete":
+                group.deleteGroup()
+            default:
+                NSLog("[Mixpanel] groupBatch skipped unknown operation '\(op)'")
+            }
+        }
+        result(nil)
+    }
+
     private func handleSetFlushBatchSize(_ call: FlutterMethodCall, result: @escaping FlutterResult) {
         let arguments = call.arguments as? [String: Any] ?? [String: Any]()
         let batchSize = arguments["flushBatchSize"] as! Int
@@ -679,9 +924,24 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
         if instance == nil {
             NSLog("[Mixpanel] areFlagsReady called before Mixpanel was initialized, returning false")
         }
+        startDeferredFlagLoad()
         result(instance?.flags.areFlagsReady() ?? false)
     }
 
+    /// Starts the flag load that deferred loading held back at initialize;
+    /// later calls do nothing.
+    private func startDeferredFlagLoad() {
+        guard flagLoadDeferred, !deferredFlagLoadStarted, let instance = instance else { return }
+        deferredFlagLoadStarted = true
+        instance.flags.loadFlags { success in
+            if success {
+                self.refreshFlagUpdates()
+            } else {
+                NSLog("[Mixpanel] Deferred feature flag load failed")
+            }
+        }
+    }
+
     private func handleGetVariant(_ call: FlutterMethodCall, result: @escaping FlutterResult) {
         let arguments = call.arguments as? [String: Any] ?? [String: Any]()
         guard let flagName = arguments["flagName"] as? String, !flagName.isEmpty else {
@@ -696,6 +956,7 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
             result(flagVariantToMap(fallback))
             return
         }
+        startDeferredFlagLoad()
         inst.flags.getVariant(flagName, fallback: fallback) { variant in
             result(self.flagVariantToMap(variant))
         }
@@ -715,6 +976,7 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
             result(fallbackValue)
             return
         }
+        startDeferredFlagLoad()
         inst.flags.getVariant(flagName, fallback: fallback) { variant in
             result(variant.value)
         }
@@ -734,6 +996,7 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
             result(fallbackValue)
             return
         }
+        startDeferredFlagLoad()
         inst.flags.getVariant(flagName, fallback: fallback) { variant in
             if let boolValue = variant.value as? Bool {
                 result(boolValue)
@@ -755,6 +1018,7 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
         let args = call.arguments as? [String: Any] ?? [:]
         let context = args["context"] as? [String: Any] ?? [:]
         instance.flags.setContext(context) {
+            self.refreshFlagUpdates()
             result(nil)
         }
     }
@@ -767,6 +1031,7 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
         }
         instance.flags.loadFlags { success in
             if success {
+                self.refreshFlagUpdates()
                 result(nil)
             } else {
                 result(FlutterError(code: "LOAD_FLAGS_FAILED", message: "Failed to load feature flags", details: nil))
@@ -780,6 +1045,7 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
             result(FlutterError(code: "MIXPANEL_UNINITIALIZED", message: "getAllVariants called before Mixpanel was initialized", details: nil))
             return
         }
+        startDeferredFlagLoad()
         instance.flags.getAllVariants { variants in
             var out = [String: [String: Any]]()
             for (key, variant) in variants {
@@ -872,6 +1138,7 @@ public class SwiftMixpanelFlutterPlugin: NSObject, FlutterPlugin {
 
 let DATE_TIME: UInt8 = 128
 let URI: UInt8 = 129
+let TRACK_MESSAGE: UInt8 = 130
 
 public class MixpanelReader : FlutterStandardReader {
     public override func readValue(ofType type: UInt8) -> Any? {
@@ -879,10 +1146,21 @@ public class MixpanelReader : FlutterStandardReader {
             case DATE_TIME:
                 var value: Int64 = 0
                 readBytes(&value, length: 8)
-                return Date(timeIntervalSince1970: TimeInterval(value / 1000 ))
+                return Date(timeIntervalSince1970: TimeInterval(value) / 1000)
             case URI:
                 let urlString = readUTF8()
                 return URL(string: urlString)
+            case TRACK_MESSAGE:
+                // Positional [eventName, properties], plus [time, sequence]
+                // when timed on the client; rebuilt into the keyed arguments
+                // the track handler already reads.
+                let fields = readValue() as? [Any] ?? []
+                return [
+                    "eventName": fields.first as Any,
+                    "properties": fields.count > 1 ? fields[1] : NSNull(),
+                    "time": fields.count > 2 ? fields[2] : NSNull(),
+                    "sequence": fields.count > 3 ? fields[3] : NSNull(),
+                ]
             default:
                 return super.readValue(ofType: type)
         }
@@ -0,0 +1,97 @@
+import 'dart:async';
+
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+import 'package:mixpanel_flutter/codec/mixpanel_message_codec.dart';
+import 'package:mixpanel_flutter/mixpanel_flutter.dart';
+
+/// Verifies the flag push path: `onFlagsReady` and `onVariantsChanged` from
+/// the native plugin surface on [FeatureFlags.onFlagsReady] and
+/// [FeatureFlags.onVariantsChanged], and the native side is only asked to
+/// push while something listens.
+void main() {
+  const channel = MethodChannel(
+    'mixpanel_flutter',
+    StandardMethodCodec(MixpanelMessageCodec()),
+  );
+  const codec = StandardMethodCodec(MixpanelMessageCodec());
+
+  TestWidgetsFlutterBinding.ensureInitialized();
+
+  late List<MethodCall> outgoingCalls;
+  late FeatureFlags flags;
+
+  setUp(() async {
+    outgoingCalls = <MethodCall>[];
+    TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+        .setMockMethodCallHandler(channel, (call) async {
+      outgoingCalls.add(call);
+      return null;
+    });
+    final mixpanel = await Mixpanel.init(
+      'test token',
+      optOutTrackingDefault: false,
+      trackAutomaticEvents: true,
+    );
+    flags = mixpanel.getFeatureFlags();
+  });
+
+  tearDown(() {
+    TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+        .setMockMethodCallHandler(channel, null);
+  });
+
+  Future<void> simulateNativeCall(String method, [Object? arguments]) async {
+    final message = codec.encodeMethodCall(MethodCall(method, arguments));
+    await TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+        .handlePlatformMessage('mixpanel_flutter', message, (_) {});
+  }
+
+  test('native onFlagsReady surfaces on onFlagsReady', () async {
+    var ready = 0;
+    final sub = flags.onFlagsReady.listen((_) => ready++);
+
+    await simulateNativeCall('onFlagsReady');
+    await Future<void>.delayed(Duration.zero);
+
+    expect(ready, 1);
+    await sub.cancel();
+  });
+
+  test('native onVariantsChanged surfaces changed and removed flags',
+      () async {
+    final received = <Map<String, MixpanelFlagVariant?>>[];
+    final sub = flags.onVariantsChanged.listen(received.add);
+
+    await simulateNativeCall('onVariantsChanged', <String, Object?>{
+      'new_checkout': <String, Object?>{'key': 'on', 'value': true},
+      'old_banner': null,
+    });
+    await Future<void>.delayed(Duration.zero);
+
+    expect(received, hasLength(1));
+    expect(received.single['new_checkout']?.value, true);
+    expect(received.single.containsKey('old_banner'), isTrue);
+    expect(received.single['old_banner'], isNull);
+    await sub.cancel();
+  });
+
+  test('first listener starts and last cancel stops native updates',
+      () async {
+    outgoingCalls.clear();
+    final ready = flags.onFlagsReady.listen((_) {});
+    final changes = flags.onVariantsChanged.listen((_) {});
+    await Future<void>.delayed(Duration.zero);
+
+    expect(outgoingCalls.map((c) => c.method).toList(), ['startFlagUpdates']);
+
+    outgoingCalls.clear();
+    await ready.cancel();
+    await Future<void>.delayed(Duration.zero);
+    expect(outgoingCalls, isEmpty);
+
+    await changes.cancel();
+    await Future<void>.delayed(Duration.zero);
+    expect(outgoingCalls.map((c) => c.method).toList(), ['stopFlagUpdates']);
+  });
+}
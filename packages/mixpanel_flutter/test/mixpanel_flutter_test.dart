@@ -200,6 +200,17 @@ void main() {
       );
     });
 
+    test('check setBridgeLogMuted', () async {
+      _mixpanel.setBridgeLogMuted(true);
+      expect(
+        methodCall,
+        isMethodCall(
+          'setBridgeLogMuted',
+          arguments: <String, dynamic>{'muted': true},
+        ),
+      );
+    });
+
     test('check setUseIpAddressForGeolocation', () async {
       _mixpanel.setUseIpAddressForGeolocation(true);
       expect(
@@ -275,10 +286,7 @@ void main() {
         methodCall,
         isMethodCall(
           'track',
-          arguments: <String, dynamic>{
-            'eventName': 'test event',
-            'properties': null,
-          },
+          arguments: MixpanelTrackMessage('test event', null),
         ),
       );
     });
@@ -289,14 +297,144 @@ void main() {
         methodCall,
         isMethodCall(
           'track',
+          arguments: MixpanelTrackMessage('test event', <String, dynamic>{'a': 'b'}),
+        ),
+      );
+    });
+
+    test('check track with client time call', () async {
+      final time = DateTime.fromMillisecondsSinceEpoch(1700000000123);
+      _mixpanel.track("test event", time: time, sequence: 7);
+      expect(
+        methodCall,
+        isMethodCall(
+          'track',
+          arguments:
+              MixpanelTrackMessage('test event', null, time: time, sequence: 7),
+        ),
+      );
+    });
+
+    test('check trackBatch call', () async {
+      await _mixpanel.trackBatch([
+        MixpanelBatchEvent('first event'),
+        MixpanelBatchEvent('second event', properties: {'a': 'b'}),
+      ]);
+      expect(
+        methodCall,
+        isMethodCall(
+          'trackBatch',
+          arguments: <String, dynamic>{
+            'events': [
+              ['first event', null],
+              [
+                'second event',
+                <String, dynamic>{'a': 'b'}
+              ],
+            ],
+          },
+        ),
+      );
+    });
+
+    test('check trackBatch skips blank event names', () async {
+      await _mixpanel.trackBatch([
+        MixpanelBatchEvent(' '),
+        MixpanelBatchEvent('kept event'),
+      ]);
+      expect(
+        methodCall,
+        isMethodCall(
+          'trackBatch',
           arguments: <String, dynamic>{
-            'eventName': 'test event',
-            'properties': <String, dynamic>{'a': 'b'},
+            'events': [
+              ['kept event', null],
+            ],
           },
         ),
       );
     });
 
+    test('check groupBatch call', () async {
+      await _mixpanel.groupBatch([
+        MixpanelGroupOperation.set('company', 'acme', {'plan': 'pro'}),
+        MixpanelGroupOperation.union('company', 'acme', 'regions', ['eu']),
+        MixpanelGroupOperation.unset('company', 'acme', ' '),
+        MixpanelGroupOperation.delete('team', 7),
+      ]);
+      expect(
+        methodCall,
+        isMethodCall(
+          'groupBatch',
+          arguments: <String, dynamic>{
+            'token': 'test token',
+            'operations': [
+              [
+                'company',
+                'acme',
+                'set',
+                null,
+                <String, dynamic>{'plan': 'pro'}
+              ],
+              [
+                'company',
+                'acme',
+                'union',
+                'regions',
+                ['eu']
+              ],
+              ['team', 7, 'delete', null, null],
+            ],
+          },
+        ),
+      );
+    });
+
+    test('check metrics flush tracks one summary per series', () async {
+      final metrics = _mixpanel.metrics;
+      metrics.count('impression', dimensions: {'slot': 'top', 'count': 'x'});
+      metrics.count('impression',
+          by: 2, dimensions: {'slot': 'top', 'count': 'x'});
+      metrics.record('latency', 120, buckets: [100, 250]);
+      metrics.record('latency', 300, buckets: [100, 250]);
+      await metrics.flush();
+
+      expect(methodCall!.method, 'trackBatch');
+      final events = methodCall!.arguments['events'] as List;
+      expect(events.map((e) => e[0]), ['impression', 'latency']);
+      final impression = events[0][1] as Map;
+      expect(impression['slot'], 'top');
+      expect(impression['count'], 'x');
+      expect(impression['metric_aggregation'], 'count');
+      expect(impression['metric_count'], 3);
+      final latency = events[1][1] as Map;
+      expect(latency['metric_aggregation'], 'histogram');
+      expect(latency['metric_count'], 2);
+      expect(latency['metric_sum'], 420.0);
+      expect(latency['metric_min'], 120.0);
+      expect(latency['metric_max'], 300.0);
+      expect(latency['metric_bucket_bounds'], [100.0, 250.0]);
+      expect(latency['metric_bucket_counts'], [0, 1, 1]);
+
+      methodCall = null;
+      await metrics.flush();
+      expect(methodCall, isNull);
+    });
+
+    test('check trackBatch splits large batches into chunks', () async {
+      final calls = <MethodCall>[];
+      TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+          .setMockMethodCallHandler(channel, (MethodCall m) async {
+        calls.add(m);
+        return null;
+      });
+      await _mixpanel.trackBatch(
+          List.generate(250, (i) => MixpanelBatchEvent('event $i')));
+      expect(calls.map((c) => (c.arguments['events'] as List).length),
+          [100, 100, 50]);
+      expect((calls.last.arguments['events'] as List).last, ['event 249', null]);
+    });
+
     test('check track with DateTime property', () async {
       final millis = DateTime.now().millisecondsSinceEpoch;
       final date = DateTime.fromMillisecondsSinceEpoch(millis);
@@ -305,10 +443,7 @@ void main() {
         methodCall,
         isMethodCall(
           'track',
-          arguments: <String, dynamic>{
-            'eventName': 'test event',
-            'properties': <String, dynamic>{'date': date},
-          },
+          arguments: MixpanelTrackMessage('test event', <String, dynamic>{'date': date}),
         ),
       );
     });
@@ -320,10 +455,7 @@ void main() {
         methodCall,
         isMethodCall(
           'track',
-          arguments: <String, dynamic>{
-            'eventName': 'test event',
-            'properties': <String, dynamic>{'url': url},
-          },
+          arguments: MixpanelTrackMessage('test event', <String, dynamic>{'url': url}),
         ),
       );
     });
@@ -871,6 +1003,18 @@ void main() {
       _mixpanel.autocapture.trackScreenLeave('   ');
       expect(methodCall, isNull);
     });
+
+    test('check setMinimumScreenDuration call', () async {
+      _mixpanel.autocapture
+          .setMinimumScreenDuration(const Duration(milliseconds: 1500));
+      expect(
+        methodCall,
+        isMethodCall(
+          'setMinimumScreenDuration',
+          arguments: <String, dynamic>{'minimumMillis': 1500},
+        ),
+      );
+    });
   });
 
   group('Helper validation tests (via public API)', () {
@@ -1513,6 +1657,17 @@ void main() {
       );
     });
 
+    test('FeatureFlagsConfig serializes deferLoading only when set', () {
+      expect(FeatureFlagsConfig().toMap().containsKey('deferLoading'), false);
+      final map = FeatureFlagsConfig(
+        deferLoading: true,
+        deferredLoadDelay: const Duration(seconds: 2),
+      ).toMap();
+      expect(map['deferLoading'], true);
+      // The delay is applied in Dart and never sent
+      expect(map.containsKey('deferredLoadDelay'), false);
+    });
+
     test(
         'VariantLookupPolicy.persistenceUntilNetworkSuccess serializes persistenceTtlMillis',
         () {
@@ -1573,6 +1728,55 @@ void main() {
       });
     });
 
+    test('init exposes persisted variants returned in the initialize reply',
+        () async {
+      TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+          .setMockMethodCallHandler(channel, (MethodCall m) async {
+        methodCall = m;
+        if (m.method == 'initialize') {
+          return {
+            'instanceId': '1',
+            'persistedVariants': {
+              'persistedAtMillis': 1700000000000,
+              'variants': {
+                'flag_a': {
+                  'key': 'on',
+                  'value': true,
+                  'source': {
+                    'kind': 'persistence',
+                    'persistedAtMillis': 1700000000000
+                  },
+                },
+              },
+            },
+          };
+        }
+        return null;
+      });
+
+      _mixpanel = await Mixpanel.init(
+        "test token",
+        optOutTrackingDefault: false,
+        trackAutomaticEvents: true,
+        featureFlags: const FeatureFlagsConfig(
+          variantLookupPolicy: VariantLookupPolicy.persistenceUntilNetworkSuccess(),
+          includePersistedVariants: true,
+        ),
+      );
+      final args = (methodCall!.arguments as Map)['featureFlags'] as Map;
+      expect(args['includePersistedVariants'], true);
+      final flags = _mixpanel.getFeatureFlags();
+      expect(flags.persistedVariants.keys, ['flag_a']);
+      expect(flags.persistedVariants['flag_a']!.value, true);
+      expect(flags.persistedAt,
+          DateTime.fromMillisecondsSinceEpoch(1700000000000));
+    });
+
+    test('persistedVariants is empty when init replies without them', () {
+      expect(_mixpanel.getFeatureFlags().persistedVariants, isEmpty);
+      expect(_mixpanel.getFeatureFlags().persistedAt, isNull);
+    });
+
     test('MixpanelFlagVariant.fromMap parses persistence source', () {
       final variant = MixpanelFlagVariant.fromMap({
         'key': 'flag_a',
@@ -0,0 +1,158 @@
+package com.mixpanel.flutter_session_replay
+
+import android.graphics.BitmapFactory
+import android.os.Build
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.File
+import java.io.FileInputStream
+import kotlin.math.log10
+
+/**
+ * Compares the [FrameEncoder] backends on the device it runs on: median
+ * encode time, output size and PSNR (luma, against the source frame) per
+ * encoder and quality. Results are logged under the `FrameEncoderBenchmark`
+ * tag, one line per encoder/quality pair, so runs across a device fleet can
+ * be collected from logcat.
+ *
+ * Run from the example app:
+ * ```
+ * cd example/android
+ * ./gradlew :mixpanel_flutter_session_replay:connectedDebugAndroidTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.framesDir=/data/local/tmp/frames
+ * ```
+ * `framesDir` is optional and holds recorded frames: one `.rgba` file per
+ * frame, a big-endian int32 width and height followed by the frame's raw
+ * RGBA bytes (what `ui.Image.toByteData(rawRgba)` returns). Without it, a
+ * synthetic UI-like frame is used.
+ */
+@RunWith(AndroidJUnit4::class)
+class FrameEncoderBenchmark {
+
+    private val qualities = listOf(40, 60, 80)
+    private val warmupRuns = 3
+    private val measuredRuns = 10
+
+    @Test
+    fun compareEncoders() {
+        val frames = loadFrames()
+        Log.i(TAG, "device=${Build.MANUFACTURER} ${Build.MODEL} sdk=${Build.VERSION.SDK_INT} frames=${frames.size}")
+        for (name in FrameEncoder.NAMES) {
+            val encoder = FrameEncoder.create(name)!!
+            for (quality in qualities) {
+                report(name, quality, frames.map { measure(encoder, it, quality) })
+            }
+            encoder.release()
+        }
+    }
+
+    private fun measure(encoder: FrameEncoder, frame: Frame, quality: Int): Sample {
+        val out = ByteArrayOutputStream()
+        // The encoder may modify pixels in place (grayscale), so each run
+        // starts from a fresh copy of the source.
+        val scratch = IntArray(frame.pixels.size)
+        val timings = LongArray(measuredRuns)
+        for (run in 0 until warmupRuns + measuredRuns) {
+            frame.pixels.copyInto(scratch)
+            out.reset()
+            val started = System.nanoTime()
+            encoder.encode(scratch, frame.width, frame.height, quality, out)
+            if (run >= warmupRuns) {
+                timings[run - warmupRuns] = System.nanoTime() - started
+            }
+        }
+        timings.sort()
+        val encoded = out.toByteArray()
+        return Sample(timings[measuredRuns / 2], encoded.size, psnr(frame, encoded))
+    }
+
+    private fun report(name: String, quality: Int, samples: List<Sample>) {
+        val millis = samples.map { it.encodeNanos / 1e6 }.average()
+        val kilobytes = samples.map { it.bytes / 1024.0 }.average()
+        val psnr = samples.map { it.psnr }.average()
+        Log.i(TAG, String.format("%-10s q=%-3d %7.2f ms %8.1f KB  PSNR %5.2f dB", name, quality, millis, kilobytes, psnr))
+    }
+
+    /** Luma PSNR of the decoded output against the source frame. */
+    private fun psnr(frame: Frame, encoded: ByteArray): Double {
+        val decoded = BitmapFactory.decodeByteArray(encoded, 0, encoded.size) ?: return 0.0
+        val pixels = IntArray(frame.width * frame.height)
+        decoded.getPixels(pixels, 0, frame.width, 0, 0, frame.width, frame.height)
+        decoded.recycle()
+        var squaredError = 0.0
+        for (i in pixels.indices) {
+            val diff = luma(frame.pixels[i]) - luma(pixels[i])
+            squaredError += diff * diff
+        }
+        val mse = squaredError / pixels.size
+        return if (mse == 0.0) 99.0 else 10 * log10(255.0 * 255.0 / mse)
+    }
+
+    private fun luma(p: Int): Double =
+        0.299 * ((p shr 16) and 0xFF) + 0.587 * ((p shr 8) and 0xFF) + 0.114 * (p and 0xFF)
+
+    private fun loadFrames(): List<Frame> {
+        val dir = InstrumentationRegistry.getArguments().getString("framesDir")
+        val files = dir?.let { File(it).listFiles { f -> f.name.endsWith(".rgba") }?.sorted() }
+        if (files.isNullOrEmpty()) {
+            return listOf(syntheticFrame(1080, 2340))
+        }
+        return files.map { file ->
+            DataInputStream(FileInputStream(file)).use { input ->
+                val width = input.readInt()
+                val height = input.readInt()
+                val rgba = ByteArray(width * height * 4)
+                input.readFully(rgba)
+                Frame(width, height, IntArray(width * height) { i ->
+                    val o = i * 4
+                    (0xFF shl 24) or ((rgba[o].toInt() and 0xFF) shl 16) or
+                        ((rgba[o + 1].toInt() and 0xFF) shl 8) or (rgba[o + 2].toInt() and 0xFF)
+                })
+            }
+        }
+    }
+
+    /** Flat backgrounds, a header bar, cards and text-like stripes: roughly what app screens look like. */
+    private fun syntheticFrame(width: Int, height: Int): Frame {
+        val pixels = IntArray(width * height) { 0xFFF5F5F5.toInt() }
+        fun fill(left: Int, top: Int, right: Int, bottom: Int, color: Int) {
+            for (y in top until minOf(bottom, height)) {
+                for (x in left until minOf(right, width)) {
+                    pixels[y * width + x] = color
+                }
+            }
+        }
+        fill(0, 0, width, 220, 0xFF3F51B5.toInt())
+        var top = 280
+        var card = 0
+        while (top + 300 < height) {
+            fill(40, top, width - 40, top + 300, 0xFFFFFFFF.toInt())
+            fill(80, top + 40, 280, top + 260, 0xFF000000.toInt() or (card * 0x3A5F17 and 0xFFFFFF))
+            for (line in 0 until 4) {
+                val y = top + 60 + line * 50
+                var x = 320
+                while (x < width - 80) {
+                    val word = 30 + (x * 7 + line * 13 + card * 31) % 90
+                    fill(x, y, x + word, y + 24, 0xFF424242.toInt())
+                    x += word + 18
+                }
+            }
+            top += 340
+            card++
+        }
+        return Frame(width, height, pixels)
+    }
+
+    private class Frame(val width: Int, val height: Int, val pixels: IntArray)
+
+    private class Sample(val encodeNanos: Long, val bytes: Int, val psnr: Double)
+
+    private companion object {
+        const val TAG = "FrameEncoderBenchmark"
+    }
+}
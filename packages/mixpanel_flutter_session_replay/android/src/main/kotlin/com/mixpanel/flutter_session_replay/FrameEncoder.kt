@@ -0,0 +1,82 @@
+package com.mixpanel.flutter_session_replay
+
+import android.graphics.Bitmap
+import android.os.Build
+import java.io.ByteArrayOutputStream
+
+/**
+ * Compresses one captured frame, given as packed 0xFFRRGGBB pixels, into
+ * image bytes. Implementations keep their scratch bitmap between frames and
+ * are only ever used from the plugin's single encoder thread.
+ */
+internal interface FrameEncoder {
+    fun encode(pixels: IntArray, width: Int, height: Int, quality: Int, out: ByteArrayOutputStream)
+
+    /** Frees cached buffers; the encoder stays usable and reallocates lazily. */
+    fun release()
+
+    companion object {
+        const val JPEG = "jpeg"
+        const val WEBP = "webp"
+        const val GRAYSCALE = "grayscale"
+
+        val NAMES = listOf(JPEG, WEBP, GRAYSCALE)
+
+        /** Returns a new encoder for [name], or null if the name is unknown. */
+        fun create(name: String): FrameEncoder? = when (name) {
+            JPEG -> BitmapFrameEncoder(Bitmap.CompressFormat.JPEG, grayscale = false)
+            WEBP -> BitmapFrameEncoder(lossyWebp(), grayscale = false)
+            // Still a JPEG, but with flat chroma, which the encoder spends
+            // almost nothing on; for low-bandwidth sessions where color
+            // doesn't matter.
+            GRAYSCALE -> BitmapFrameEncoder(Bitmap.CompressFormat.JPEG, grayscale = true)
+            else -> null
+        }
+
+        @Suppress("DEPRECATION")
+        private fun lossyWebp(): Bitmap.CompressFormat =
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                Bitmap.CompressFormat.WEBP_LOSSY
+            } else {
+                // Lossy for any quality below 100 on older releases.
+                Bitmap.CompressFormat.WEBP
+            }
+    }
+}
+
+/** [FrameEncoder] over [Bitmap.compress] with a reused RGB_565 bitmap (screenshots are opaque). */
+internal class BitmapFrameEncoder(
+    private val format: Bitmap.CompressFormat,
+    private val grayscale: Boolean,
+) : FrameEncoder {
+    private var bitmap: Bitmap? = null
+
+    override fun encode(pixels: IntArray, width: Int, height: Int, quality: Int, out: ByteArrayOutputStream) {
+        if (grayscale) {
+            toGrayscale(pixels)
+        }
+        var target = bitmap
+        if (target == null || target.isRecycled || target.width != width || target.height != height) {
+            target?.recycle()
+            target = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565)
+            bitmap = target
+        }
+        // Overwrites every pixel, so no erase is needed between frames.
+        target.setPixels(pixels, 0, width, 0, 0, width, height)
+        target.compress(format, quality, out)
+    }
+
+    override fun release() {
+        bitmap?.recycle()
+        bitmap = null
+    }
+
+    private fun toGrayscale(pixels: IntArray) {
+        for (i in pixels.indices) {
+            val p = pixels[i]
+            // Integer BT.601 luma.
+            val y = (77 * ((p shr 16) and 0xFF) + 150 * ((p shr 8) and 0xFF) + 29 * (p and 0xFF)) shr 8
+            pixels[i] = (0xFF shl 24) or (y shl 16) or (y shl 8) or y
+        }
+    }
+}
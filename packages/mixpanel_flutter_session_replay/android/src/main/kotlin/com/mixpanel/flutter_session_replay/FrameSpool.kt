@@ -0,0 +1,62 @@
+package com.mixpanel.flutter_session_replay
+
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileOutputStream
+
+/**
+ * App-private directory of encoded frames waiting for upload, so they don't
+ * have to sit in Dart memory while the network lags. Files are handed to Dart
+ * by path; Dart deletes them once the frame is uploaded or dropped.
+ *
+ * The directory is capped at [maxBytes]: when a write would exceed it, the
+ * oldest frames are deleted first. Dart treats a missing file as a dropped
+ * frame. Only ever used from the plugin's single encoder thread.
+ */
+internal class FrameSpool(private val dir: File, private val maxBytes: Long) {
+    private class Entry(val file: File, val size: Long)
+
+    // Oldest first. Sizes are as written; entries whose files Dart already
+    // deleted linger until the next time the cap is hit.
+    private val entries = ArrayDeque<Entry>()
+    private var totalBytes = 0L
+    private var nextId = 0L
+
+    /** Writes [frame] to a new spool file and returns it. */
+    fun write(frame: ByteArrayOutputStream): File {
+        if (!dir.isDirectory) {
+            dir.mkdirs()
+        }
+        val file = File(dir, "${System.currentTimeMillis()}-${nextId++}.frame")
+        FileOutputStream(file).use { frame.writeTo(it) }
+        entries.addLast(Entry(file, frame.size().toLong()))
+        totalBytes += frame.size()
+        if (totalBytes > maxBytes) {
+            evict()
+        }
+        return file
+    }
+
+    /** Deletes every spooled frame, including ones left over from earlier runs. */
+    fun clear() {
+        dir.listFiles()?.forEach { it.delete() }
+        entries.clear()
+        totalBytes = 0
+    }
+
+    private fun evict() {
+        // Forget frames Dart has already uploaded before counting what's left.
+        entries.removeAll { !it.file.exists() }
+        totalBytes = entries.sumOf { it.size }
+        // The newest frame is always kept, even if it alone exceeds the cap.
+        while (totalBytes > maxBytes && entries.size > 1) {
+            val oldest = entries.removeFirst()
+            oldest.file.delete()
+            totalBytes -= oldest.size
+        }
+    }
+
+    companion object {
+        const val DEFAULT_MAX_BYTES = 32L * 1024 * 1024
+    }
+}
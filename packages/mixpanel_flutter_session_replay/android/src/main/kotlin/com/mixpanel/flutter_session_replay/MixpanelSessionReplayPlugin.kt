@@ -1,30 +1,49 @@
 package com.mixpanel.flutter_session_replay
 
+import android.content.ComponentCallbacks2
 import android.content.Context
 import android.content.Intent
-import android.graphics.Bitmap
+import android.content.pm.PackageManager
+import android.content.res.Configuration
+import android.os.Build
+import android.os.Trace
 import io.flutter.embedding.engine.plugins.FlutterPlugin
 import io.flutter.plugin.common.MethodCall
 import io.flutter.plugin.common.MethodChannel
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler
 import io.flutter.plugin.common.MethodChannel.Result
 import java.io.ByteArrayOutputStream
+import java.io.File
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
 
-class MixpanelSessionReplayPlugin : FlutterPlugin, MethodCallHandler {
+class MixpanelSessionReplayPlugin : FlutterPlugin, MethodCallHandler, ComponentCallbacks2 {
     private lateinit var channel: MethodChannel
     private var executor: ExecutorService? = null
     private var applicationContext: Context? = null
 
     // Cached resources reused across captures — only accessed from the single executor thread
-    private var cachedBitmap: Bitmap? = null
+    private val encoders = HashMap<String, FrameEncoder>()
     private var cachedPixels: IntArray? = null
     private var cachedOutputStream: ByteArrayOutputStream? = null
+    private var spool: FrameSpool? = null
+
+    // Frames submitted to the executor but not yet finished; exported as a
+    // trace counter so encoder backlog is visible in Perfetto.
+    private val pendingCompressions = AtomicInteger()
+
+    // Same manifest opt-in as the mixpanel_flutter bridge tracing.
+    @Volatile
+    private var tracingEnabled = false
 
     companion object {
         private const val REGISTER_ACTION = "com.mixpanel.properties.register"
         private const val UNREGISTER_ACTION = "com.mixpanel.properties.unregister"
+        private const val SPOOL_DIR = "mixpanel_replay_spool"
+        private const val META_ENABLE_TRACING = "com.mixpanel.flutter.EnableTracing"
+        // Same gray as the Dart MaskPainter
+        private const val DEFAULT_MASK_COLOR = 0xFFCCCCCC.toInt()
     }
 
     override fun onAttachedToEngine(binding: FlutterPlugin.FlutterPluginBinding) {
@@ -32,13 +51,18 @@ class MixpanelSessionReplayPlugin : FlutterPlugin, MethodCallHandler {
         channel.setMethodCallHandler(this)
         executor = Executors.newSingleThreadExecutor()
         applicationContext = binding.applicationContext
+        tracingEnabled = readTracingOptIn(binding.applicationContext)
+        spool = FrameSpool(File(binding.applicationContext.cacheDir, SPOOL_DIR), FrameSpool.DEFAULT_MAX_BYTES)
+        binding.applicationContext.registerComponentCallbacks(this)
     }
 
     override fun onDetachedFromEngine(binding: FlutterPlugin.FlutterPluginBinding) {
+        binding.applicationContext.unregisterComponentCallbacks(this)
         channel.setMethodCallHandler(null)
         executor?.shutdown()
         executor = null
         applicationContext = null
+        spool = null
         clearCache()
     }
 
@@ -49,6 +73,11 @@ class MixpanelSessionReplayPlugin : FlutterPlugin, MethodCallHandler {
                 executor?.execute { clearCache() }
                 result.success(null)
             }
+            "clearSpool" -> {
+                val currentSpool = spool
+                executor?.execute { currentSpool?.clear() }
+                result.success(null)
+            }
             "registerSuperProperties" -> {
                 registerSuperProperties(call)
                 result.success(null)
@@ -84,29 +113,70 @@ class MixpanelSessionReplayPlugin : FlutterPlugin, MethodCallHandler {
     }
 
     private fun clearCache() {
-        cachedBitmap?.recycle()
-        cachedBitmap = null
+        for (encoder in encoders.values) {
+            encoder.release()
+        }
         cachedPixels = null
         cachedOutputStream = null
     }
 
+    // Called on the main thread.
+    override fun onTrimMemory(level: Int) {
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return
+        }
+        // The cached bitmap is a full screen's worth of pixels; it is
+        // recreated on the next capture, so it's the first thing to go.
+        // Cache fields are only touched from the executor thread.
+        executor?.execute { clearCache() }
+        // Ask Dart to capture less while the system is short on memory.
+        // Background levels need no signal: nothing is captured there.
+        if (level < ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            val pressure = if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) "critical" else "low"
+            channel.invokeMethod("onMemoryPressure", mapOf("level" to pressure))
+        }
+    }
+
+    override fun onLowMemory() {
+        executor?.execute { clearCache() }
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) {
+    }
+
     private fun compressImage(call: MethodCall, result: Result) {
         val rgbaBytes = call.argument<ByteArray>("rgbaBytes")
         val width = call.argument<Int>("width")
         val height = call.argument<Int>("height")
         val quality = call.argument<Int>("quality")
+        val encoderName = call.argument<String>("encoder") ?: FrameEncoder.JPEG
+        val toSpool = call.argument<Boolean>("spool") ?: false
+        // Privacy masks as flat [left, top, right, bottom, ...] pixel rectangles
+        val masks = call.argument<IntArray>("masks")
+        val maskColor = call.argument<Int>("maskColor") ?: DEFAULT_MASK_COLOR
 
         if (rgbaBytes == null || width == null || height == null || quality == null) {
             result.error("INVALID_ARGS", "Missing required arguments", null)
             return
         }
+        if (masks != null && masks.size % 4 != 0) {
+            result.error("INVALID_ARGS", "Mask list must hold 4 values per rectangle", null)
+            return
+        }
+        if (encoderName !in FrameEncoder.NAMES) {
+            result.error("INVALID_ARGS", "Unknown encoder '$encoderName'", null)
+            return
+        }
 
         val currentExecutor = executor
         if (currentExecutor == null || currentExecutor.isShutdown) {
             result.error("NOT_INITIALIZED", "Plugin not initialized", null)
             return
         }
+        // Spooled frames go to disk and Dart only gets their path back.
+        val frameSpool = if (toSpool) spool else null
 
+        traceCounter("MixpanelSessionReplay.pendingFrames", pendingCompressions.incrementAndGet())
         currentExecutor.execute {
             try {
                 val pixelCount = width * height
@@ -127,33 +197,11 @@ class MixpanelSessionReplayPlugin : FlutterPlugin, MethodCallHandler {
                     cachedPixels = pixels
                 }
 
-                // Convert RGBA bytes to packed RGB ints (alpha ignored — screenshots are opaque)
-                // Flutter rawRgba: [R, G, B, A] per pixel → packed 0xFFRRGGBB
-                for (i in 0 until pixelCount) {
-                    val offset = i * 4
-                    val r = rgbaBytes[offset].toInt() and 0xFF
-                    val g = rgbaBytes[offset + 1].toInt() and 0xFF
-                    val b = rgbaBytes[offset + 2].toInt() and 0xFF
-                    pixels[i] = (0xFF shl 24) or (r shl 16) or (g shl 8) or b
+                traceSection("compressImage.pack") {
+                    packPixels(rgbaBytes, pixels, width, height, masks, maskColor)
                 }
 
-                // Reuse bitmap if dimensions match (RGB_565: 2 bytes/pixel, no alpha needed)
-                var bitmap = cachedBitmap
-                if (bitmap == null || bitmap.isRecycled ||
-                    bitmap.width != width || bitmap.height != height
-                ) {
-                    bitmap?.recycle()
-                    bitmap = try {
-                        Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565)
-                    } catch (e: OutOfMemoryError) {
-                        result.error("OOM", "Failed to allocate bitmap", null)
-                        return@execute
-                    }
-                    cachedBitmap = bitmap
-                }
-
-                // Write pixels into reused bitmap (overwrites all pixels, no erase needed)
-                bitmap.setPixels(pixels, 0, width, 0, 0, width, height)
+                val encoder = encoders.getOrPut(encoderName) { FrameEncoder.create(encoderName)!! }
 
                 // Reuse output stream
                 var outputStream = cachedOutputStream
@@ -164,13 +212,115 @@ class MixpanelSessionReplayPlugin : FlutterPlugin, MethodCallHandler {
                     outputStream.reset()
                 }
 
-                bitmap.compress(Bitmap.CompressFormat.JPEG, quality, outputStream)
+                try {
+                    traceSection("compressImage.encode") {
+                        encoder.encode(pixels, width, height, quality, outputStream)
+                    }
+                } catch (e: OutOfMemoryError) {
+                    encoder.release()
+                    result.error("OOM", "Failed to allocate bitmap", null)
+                    return@execute
+                }
+                traceCounter("MixpanelSessionReplay.encodedBytes", outputStream.size())
 
-                // Bitmap stays cached for next capture — not recycled
-                result.success(outputStream.toByteArray())
+                // The encoder's bitmap stays cached for the next capture
+                if (frameSpool != null) {
+                    val file = traceSection("compressImage.spool") { frameSpool.write(outputStream) }
+                    result.success(mapOf("path" to file.absolutePath, "size" to outputStream.size()))
+                } else {
+                    result.success(outputStream.toByteArray())
+                }
             } catch (e: Exception) {
                 result.error("COMPRESSION_ERROR", e.message, null)
+            } finally {
+                traceCounter("MixpanelSessionReplay.pendingFrames", pendingCompressions.decrementAndGet())
+            }
+        }
+    }
+
+    /**
+     * Converts Flutter rawRgba bytes ([R, G, B, A] per pixel) to packed
+     * 0xFFRRGGBB ints, alpha ignored since screenshots are opaque, and fills
+     * the [masks] rectangles with [maskColor] in the same pass. Each row is
+     * masked right after it is packed, while it's still in cache, so masking
+     * adds no second walk over the frame.
+     */
+    private fun packPixels(rgba: ByteArray, pixels: IntArray, width: Int, height: Int, masks: IntArray?, maskColor: Int) {
+        val opaqueMaskColor = maskColor or (0xFF shl 24)
+        val rects = masks?.let { clampMasks(it, width, height) }
+        for (y in 0 until height) {
+            val row = y * width
+            for (x in 0 until width) {
+                val offset = (row + x) * 4
+                val r = rgba[offset].toInt() and 0xFF
+                val g = rgba[offset + 1].toInt() and 0xFF
+                val b = rgba[offset + 2].toInt() and 0xFF
+                pixels[row + x] = (0xFF shl 24) or (r shl 16) or (g shl 8) or b
+            }
+            if (rects != null) {
+                var i = 0
+                while (i < rects.size) {
+                    if (y >= rects[i + 1] && y < rects[i + 3]) {
+                        pixels.fill(opaqueMaskColor, row + rects[i], row + rects[i + 2])
+                    }
+                    i += 4
+                }
+            }
+        }
+    }
+
+    /** Clips mask rectangles to the frame and drops the ones left empty. */
+    private fun clampMasks(masks: IntArray, width: Int, height: Int): IntArray? {
+        val clamped = IntArray(masks.size)
+        var count = 0
+        var i = 0
+        while (i < masks.size) {
+            val left = masks[i].coerceIn(0, width)
+            val top = masks[i + 1].coerceIn(0, height)
+            val right = masks[i + 2].coerceIn(0, width)
+            val bottom = masks[i + 3].coerceIn(0, height)
+            if (left < right && top < bottom) {
+                clamped[count++] = left
+                clamped[count++] = top
+                clamped[count++] = right
+                clamped[count++] = bottom
             }
+            i += 4
+        }
+        return if (count == 0) null else clamped.copyOf(count)
+    }
+
+    private fun readTracingOptIn(context: Context): Boolean {
+        return try {
+            context.packageManager
+                .getApplicationInfo(context.packageName, PackageManager.GET_META_DATA)
+                .metaData?.getBoolean(META_ENABLE_TRACING, false) ?: false
+        } catch (e: PackageManager.NameNotFoundException) {
+            false
+        }
+    }
+
+    // Systrace/Perfetto instrumentation, only when the app opted in and a
+    // trace is being captured (which can only be asked from API 29 on).
+    private fun isTracing(): Boolean {
+        return tracingEnabled &&
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q &&
+            Trace.isEnabled()
+    }
+
+    private inline fun <T> traceSection(name: String, block: () -> T): T {
+        if (!isTracing()) return block()
+        Trace.beginSection(name)
+        try {
+            return block()
+        } finally {
+            Trace.endSection()
+        }
+    }
+
+    private fun traceCounter(name: String, value: Int) {
+        if (isTracing()) {
+            Trace.setCounter(name, value.toLong())
         }
     }
 }
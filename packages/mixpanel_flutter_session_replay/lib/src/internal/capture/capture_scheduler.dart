@@ -4,6 +4,7 @@ import 'package:clock/clock.dart';
 import 'package:flutter/widgets.dart';
 
 import '../logger.dart';
+import 'memory_pressure_monitor.dart';
 
 /// Helper class that manages capture timing and rate limiting
 ///
@@ -14,9 +15,16 @@ class CaptureScheduler {
   /// Minimum interval between captures (default: 500ms)
   final Duration minInterval;
 
+  /// Multiplier applied to [minInterval] under [MemoryPressure.low]
+  static const int lowMemoryIntervalFactor = 4;
+
   /// Logger instance
   final MixpanelLogger _logger;
 
+  /// Source of platform memory pressure, if any. Captures slow down under
+  /// low memory and stop entirely under critical memory.
+  final MemoryPressureMonitor? _memoryPressure;
+
   /// Timestamp of last capture completion
   DateTime? _lastCaptureTime;
 
@@ -29,14 +37,30 @@ class CaptureScheduler {
   CaptureScheduler({
     this.minInterval = const Duration(milliseconds: 500),
     required MixpanelLogger logger,
-  }) : _logger = logger;
+    MemoryPressureMonitor? memoryPressure,
+  }) : _logger = logger,
+       _memoryPressure = memoryPressure;
+
+  MemoryPressure get _pressure =>
+      _memoryPressure?.level ?? MemoryPressure.none;
+
+  /// [minInterval], stretched while memory is low
+  Duration get effectiveInterval => _pressure == MemoryPressure.low
+      ? minInterval * lowMemoryIntervalFactor
+      : minInterval;
 
   /// Check if enough time has passed since last capture completed
   ///
   /// Returns false if:
   /// - A capture is already in progress
-  /// - Less than 500ms has elapsed since last capture completed
+  /// - Less than [effectiveInterval] has elapsed since last capture completed
+  /// - The platform reported critical memory pressure
   bool canCapture() {
+    if (_pressure == MemoryPressure.critical) {
+      _logger.debug('Critical memory pressure, skipping capture');
+      return false;
+    }
+
     // Can't capture if one is already in progress
     if (_isCaptureInProgress) {
       _logger.debug('Capture in progress, cannot start new one');
@@ -47,7 +71,7 @@ class CaptureScheduler {
     if (_lastCaptureTime == null) return true;
 
     final elapsed = clock.now().difference(_lastCaptureTime!);
-    return elapsed >= minInterval;
+    return elapsed >= effectiveInterval;
   }
 
   /// Schedule a capture after the remaining rate limit time
@@ -73,15 +97,22 @@ class CaptureScheduler {
       return null;
     }
 
+    // Nothing is captured under critical memory pressure; the next frame
+    // after it lapses schedules again.
+    if (_pressure == MemoryPressure.critical) {
+      return null;
+    }
+
     // Calculate remaining time (handles race condition where time passes between canCapture check and this call)
+    final interval = effectiveInterval;
     final elapsed = _lastCaptureTime == null
-        ? minInterval
+        ? interval
         : clock.now().difference(_lastCaptureTime!);
 
-    final remaining = elapsed >= minInterval
+    final remaining = elapsed >= interval
         ? Duration
               .zero // Execute immediately
-        : minInterval - elapsed;
+        : interval - elapsed;
 
     final now = clock.now();
     _logger.debug(
@@ -0,0 +1,67 @@
+import 'package:clock/clock.dart';
+import 'package:flutter/foundation.dart';
+import 'package:flutter/services.dart';
+
+/// Memory pressure as reported by the platform.
+enum MemoryPressure {
+  /// No recent report.
+  none,
+
+  /// The system is running low on memory; capture less often.
+  low,
+
+  /// The system is about to start killing processes; stop capturing.
+  critical,
+}
+
+/// Tracks memory pressure reports pushed by the native plugin.
+///
+/// On Android these come from `ComponentCallbacks2.onTrimMemory` while the
+/// app is in the foreground. The platform never reports recovery, so each
+/// report holds for [holdDuration] and then lapses back to
+/// [MemoryPressure.none] unless it is repeated. Other platforms never
+/// report, so the level stays [MemoryPressure.none].
+class MemoryPressureMonitor {
+  MemoryPressureMonitor({this.holdDuration = const Duration(seconds: 30)});
+
+  /// Process-wide instance fed by the platform channel.
+  static final MemoryPressureMonitor instance = MemoryPressureMonitor();
+
+  static const _channel = MethodChannel('com.mixpanel.flutter_session_replay');
+
+  /// How long a single report stays in effect.
+  final Duration holdDuration;
+
+  MemoryPressure _reported = MemoryPressure.none;
+  DateTime? _reportedAt;
+  bool _listening = false;
+
+  /// Current pressure level, taking report expiry into account.
+  MemoryPressure get level {
+    final reportedAt = _reportedAt;
+    if (reportedAt == null ||
+        clock.now().difference(reportedAt) >= holdDuration) {
+      return MemoryPressure.none;
+    }
+    return _reported;
+  }
+
+  /// Records a report from the platform.
+  @visibleForTesting
+  void report(MemoryPressure level) {
+    _reported = level;
+    _reportedAt = clock.now();
+  }
+
+  /// Starts listening for `onMemoryPressure` calls from the native plugin.
+  /// Safe to call more than once.
+  void ensureListening() {
+    if (_listening) return;
+    _listening = true;
+    _channel.setMethodCallHandler((MethodCall call) async {
+      if (call.method != 'onMemoryPressure') return;
+      final level = (call.arguments as Map?)?['level'];
+      report(level == 'critical' ? MemoryPressure.critical : MemoryPressure.low);
+    });
+  }
+}
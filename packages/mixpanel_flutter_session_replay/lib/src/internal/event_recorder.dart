@@ -59,9 +59,12 @@ class EventRecorder {
 
   /// Record a screenshot event
   ///
-  /// Saves the provided screenshot data as an event.
+  /// Saves the provided screenshot data as an event. For screenshots spooled
+  /// to disk, [imageData] is empty and [spoolPath] points at the image file.
   Future<void> recordSnapshot({
     required Uint8List imageData,
+    String? spoolPath,
+    int spoolLength = 0,
     required int width,
     required int height,
     required DateTime timestamp,
@@ -71,6 +74,8 @@ class EventRecorder {
     // Save to event queue
     await _saveSnapshotToQueue(
       imageData: imageData,
+      spoolPath: spoolPath,
+      spoolLength: spoolLength,
       width: width,
       height: height,
       timestamp: timestamp,
@@ -123,6 +128,8 @@ class EventRecorder {
   /// Save snapshot to event queue
   Future<void> _saveSnapshotToQueue({
     required Uint8List imageData,
+    String? spoolPath,
+    int spoolLength = 0,
     required int width,
     required int height,
     required DateTime timestamp,
@@ -140,7 +147,11 @@ class EventRecorder {
       _lastMetadataDimensions = currentDimensions;
     }
 
-    final payload = ScreenshotPayload(imageData: imageData);
+    final payload = ScreenshotPayload(
+      imageData: imageData,
+      spoolPath: spoolPath,
+      spoolLength: spoolLength,
+    );
 
     await _saveEventToQueue(
       type: EventType.screenshot,
@@ -1,5 +1,49 @@
 import 'package:flutter/services.dart';
 
+/// Encoder backends of the native `compressImage` call.
+///
+/// Only Android implements all of them; iOS/macOS always encode JPEG.
+enum NativeEncoder {
+  jpeg('jpeg'),
+  webp('webp'),
+  grayscale('grayscale');
+
+  const NativeEncoder(this.channelName);
+
+  /// Name sent over the method channel.
+  final String channelName;
+}
+
+/// Privacy mask rectangles for the native encoder to fill while it converts
+/// the frame's pixels, instead of painting them over the image in Dart.
+class NativeMasks {
+  NativeMasks(this.rects, this.color);
+
+  /// Flat `[left, top, right, bottom, ...]` rectangles in image pixels.
+  final Int32List rects;
+
+  /// Fill color as 0xAARRGGBB.
+  final int color;
+
+  Map<String, Object> get _arguments => {
+    'masks': rects,
+    // Signed so it travels as a 32-bit int
+    'maskColor': color.toSigned(32),
+  };
+}
+
+/// A compressed frame the native side wrote to its spool directory instead
+/// of returning the bytes.
+class SpooledFrame {
+  const SpooledFrame({required this.path, required this.length});
+
+  /// Absolute path of the encoded image file.
+  final String path;
+
+  /// Size of the file in bytes.
+  final int length;
+}
+
 /// Compresses RGBA image data to JPEG using platform-native encoders.
 ///
 /// Uses MethodChannel to call Android's Bitmap.compress() (libjpeg-turbo)
@@ -10,14 +54,19 @@ import 'package:flutter/services.dart';
 class NativeImageCompressor {
   static const _channel = MethodChannel('com.mixpanel.flutter_session_replay');
 
-  /// Compress RGBA bytes to JPEG using native platform encoder.
+  /// Compress RGBA bytes using the native platform encoder.
+  ///
+  /// [masks] are filled in natively while the pixels are converted (Android
+  /// only; other platforms ignore them, so mask in Dart there).
   ///
-  /// Returns compressed JPEG bytes, or null if native compression fails.
-  Future<Uint8List?> compressToJpeg(
+  /// Returns compressed image bytes, or null if native compression fails.
+  Future<Uint8List?> compress(
     Uint8List rgbaBytes, {
     required int width,
     required int height,
     required int quality,
+    NativeEncoder encoder = NativeEncoder.jpeg,
+    NativeMasks? masks,
   }) async {
     try {
       return await _channel.invokeMethod<Uint8List>('compressImage', {
@@ -25,12 +74,61 @@ class NativeImageCompressor {
         'width': width,
         'height': height,
         'quality': quality,
+        if (encoder != NativeEncoder.jpeg) 'encoder': encoder.channelName,
+        ...?masks?._arguments,
       });
     } catch (_) {
       return null;
     }
   }
 
+  /// Compress RGBA bytes and write the result to the native spool directory.
+  ///
+  /// Keeps the encoded frame out of Dart memory until it is uploaded. The
+  /// spool is size-capped and evicts its oldest frames first, so the file
+  /// may be gone by the time it is read. Android only.
+  ///
+  /// Returns the spooled frame, or null if compression or the write fails.
+  Future<SpooledFrame?> compressToSpool(
+    Uint8List rgbaBytes, {
+    required int width,
+    required int height,
+    required int quality,
+    NativeEncoder encoder = NativeEncoder.jpeg,
+    NativeMasks? masks,
+  }) async {
+    try {
+      final result = await _channel.invokeMapMethod<String, Object?>(
+        'compressImage',
+        {
+          'rgbaBytes': rgbaBytes,
+          'width': width,
+          'height': height,
+          'quality': quality,
+          if (encoder != NativeEncoder.jpeg) 'encoder': encoder.channelName,
+          ...?masks?._arguments,
+          'spool': true,
+        },
+      );
+      if (result == null) return null;
+      return SpooledFrame(
+        path: result['path'] as String,
+        length: result['size'] as int,
+      );
+    } catch (_) {
+      return null;
+    }
+  }
+
+  /// Delete every spooled frame, including ones left from earlier runs.
+  Future<void> clearSpool() async {
+    try {
+      await _channel.invokeMethod<void>('clearSpool');
+    } catch (_) {
+      // Not implemented off Android; nothing to clear there
+    }
+  }
+
   /// Release native cached resources (bitmaps, buffers).
   ///
   /// Call this when session replay stops to free memory.
@@ -30,6 +30,13 @@ enum CompressionMode {
 
   /// Pure Dart PNG encoder via isolate (lossless, deterministic for tests).
   dartPng,
+
+  /// Native lossy WebP encoder. Android only; other platforms encode JPEG.
+  nativeWebp,
+
+  /// Native grayscale JPEG encoder, for low-bandwidth sessions where color
+  /// isn't needed. Android only; other platforms encode color JPEG.
+  nativeGrayscale,
 }
 
 /// Screenshot capturer with three-layer fail-safe masking
@@ -50,6 +57,10 @@ class ScreenshotCapturer {
   /// Change this value to compare performance between strategies.
   CompressionMode compressionMode;
 
+  /// Whether native-encoded frames are written to the native spool directory
+  /// instead of being returned to Dart. Only honored on Android.
+  final bool spoolFramesToDisk;
+
   /// Mask painter (reusable across captures)
   late final MaskPainter _maskPainter;
 
@@ -59,6 +70,7 @@ class ScreenshotCapturer {
     required bool debugOverlayEnabled,
     NativeImageCompressor? nativeCompressor,
     this.compressionMode = CompressionMode.nativeJpeg,
+    this.spoolFramesToDisk = false,
   }) : _logger = logger,
        _debugOverlayEnabled = debugOverlayEnabled,
        _nativeCompressor = nativeCompressor {
@@ -141,29 +153,45 @@ class ScreenshotCapturer {
         'Image rendering: ${renderTime.inMilliseconds}ms (${rawImage.width}x${rawImage.height})',
       );
 
-      // Apply masks
-      final maskPaintStart = clock.now();
+      // Apply masks, unless the native encoder fills them in while it
+      // converts the pixels, which saves painting a second full frame here
+      final nativeMasks = _usesAndroidEncoder
+          ? _nativeMasks(maskRegions, rawImage.width, rawImage.height)
+          : null;
       ui.Image maskedImage;
-      try {
-        maskedImage = await _maskPainter.applyMasks(rawImage, maskRegions);
-      } catch (e) {
+      if (nativeMasks != null) {
+        maskedImage = rawImage;
+      } else {
+        final maskPaintStart = clock.now();
+        try {
+          maskedImage = await _maskPainter.applyMasks(rawImage, maskRegions);
+        } catch (e) {
+          rawImage.dispose();
+          return CaptureFailure(
+            CaptureError.maskApplicationFailed,
+            'Failed to apply mask overlays: $e',
+          );
+        }
+        final maskPaintTime = clock.now().difference(maskPaintStart);
+        _logger.debug('Mask painting: ${maskPaintTime.inMilliseconds}ms');
+      }
+      void disposeImages() {
         rawImage.dispose();
-        return CaptureFailure(
-          CaptureError.maskApplicationFailed,
-          'Failed to apply mask overlays: $e',
-        );
+        if (!identical(maskedImage, rawImage)) maskedImage.dispose();
       }
-      final maskPaintTime = clock.now().difference(maskPaintStart);
-      _logger.debug('Mask painting: ${maskPaintTime.inMilliseconds}ms');
 
       // Compress image
       final compressionStart = clock.now();
       Uint8List? compressedBytes;
+      SpooledFrame? spooledFrame;
       try {
-        compressedBytes = await _compressImage(maskedImage);
+        if (_spoolsFrames) {
+          spooledFrame = await _spoolImage(maskedImage, nativeMasks);
+        } else {
+          compressedBytes = await _compressImage(maskedImage, nativeMasks);
+        }
       } catch (e) {
-        rawImage.dispose();
-        maskedImage.dispose();
+        disposeImages();
         return CaptureFailure(
           CaptureError.compressionFailed,
           'Image compression failed: $e',
@@ -171,8 +199,10 @@ class ScreenshotCapturer {
       }
       final compressionTime = clock.now().difference(compressionStart);
       final formatName = compressionMode.name;
+      final compressedLength =
+          spooledFrame?.length ?? compressedBytes?.length ?? 0;
       _logger.debug(
-        '$formatName compression: ${compressionTime.inMilliseconds}ms (${compressedBytes?.length ?? 0} bytes)',
+        '$formatName compression: ${compressionTime.inMilliseconds}ms ($compressedLength bytes${spooledFrame != null ? ', spooled' : ''})',
       );
 
       // Store dimensions before cleanup
@@ -181,10 +211,9 @@ class ScreenshotCapturer {
       final imageMaskCount = maskRegions.length;
 
       // Clean up
-      rawImage.dispose();
-      maskedImage.dispose();
+      disposeImages();
 
-      if (compressedBytes == null) {
+      if (compressedBytes == null && spooledFrame == null) {
         return CaptureFailure(
           CaptureError.insufficientMemory,
           'Failed to compress image (OOM)',
@@ -193,11 +222,13 @@ class ScreenshotCapturer {
 
       final totalTime = clock.now().difference(captureStart);
       _logger.debug(
-        'Total capture time: ${totalTime.inMilliseconds}ms (${imageWidth}x$imageHeight, ${(compressedBytes.length / 1024).toStringAsFixed(1)}KB)',
+        'Total capture time: ${totalTime.inMilliseconds}ms (${imageWidth}x$imageHeight, ${(compressedLength / 1024).toStringAsFixed(1)}KB)',
       );
 
       return CaptureSuccess(
-        data: compressedBytes,
+        data: compressedBytes ?? Uint8List(0),
+        spoolPath: spooledFrame?.path,
+        spoolLength: spooledFrame?.length ?? 0,
         width: imageWidth,
         height: imageHeight,
         maskCount: imageMaskCount,
@@ -219,7 +250,9 @@ class ScreenshotCapturer {
   /// - Native mode (nativeJpeg): platform JPEG encoder via MethodChannel.
   ///   Compression runs on native background threads.
   /// - Dart modes (dartJpeg/dartPng): pure Dart encoder via background isolate.
-  Future<Uint8List?> _compressImage(ui.Image image) async {
+  ///
+  /// [masks] are only passed when the native encoder applies them.
+  Future<Uint8List?> _compressImage(ui.Image image, NativeMasks? masks) async {
     try {
       // Get raw RGBA bytes
       final byteData = await image.toByteData(
@@ -235,13 +268,15 @@ class ScreenshotCapturer {
       final jpegQuality = defaultTargetPlatform == TargetPlatform.iOS ? 40 : 80;
 
       // Native compression (hardware-accelerated, runs on native background threads)
-      if (_nativeCompressor != null &&
-          compressionMode == CompressionMode.nativeJpeg) {
-        return await _nativeCompressor.compressToJpeg(
+      final nativeEncoder = _nativeEncoder;
+      if (_nativeCompressor != null && nativeEncoder != null) {
+        return await _nativeCompressor.compress(
           rgbaBytes,
           width: image.width,
           height: image.height,
           quality: jpegQuality,
+          encoder: nativeEncoder,
+          masks: masks,
         );
       }
 
@@ -259,6 +294,74 @@ class ScreenshotCapturer {
     }
   }
 
+  /// Native encoder for the current [compressionMode], or null for Dart modes.
+  NativeEncoder? get _nativeEncoder => switch (compressionMode) {
+    CompressionMode.nativeJpeg => NativeEncoder.jpeg,
+    CompressionMode.nativeWebp => NativeEncoder.webp,
+    CompressionMode.nativeGrayscale => NativeEncoder.grayscale,
+    _ => null,
+  };
+
+  /// Whether captures go to the native spool rather than Dart memory.
+  bool get _spoolsFrames => spoolFramesToDisk && _usesAndroidEncoder;
+
+  /// Whether frames go to Android's native encoder, which also applies the
+  /// privacy masks and can spool to disk. Everywhere else masks are painted
+  /// in Dart before compression.
+  bool get _usesAndroidEncoder =>
+      _nativeCompressor != null &&
+      _nativeEncoder != null &&
+      defaultTargetPlatform == TargetPlatform.android;
+
+  /// Mask rectangles for the native encoder, rounded outward to whole pixels
+  /// so partially covered edge pixels are masked too. The capture uses a
+  /// pixel ratio of 1, so mask bounds are already in image pixels.
+  NativeMasks _nativeMasks(
+    List<MaskRegionInfo> maskRegions,
+    int width,
+    int height,
+  ) {
+    final frame = Rect.fromLTWH(0, 0, width.toDouble(), height.toDouble());
+    final rects = <int>[];
+    for (final maskInfo in maskRegions) {
+      // Skip unmask regions — they exist only for debug overlay visualization
+      if (maskInfo.source == MaskSource.unmask) continue;
+      final bounds = maskInfo.bounds.intersect(frame);
+      if (bounds.isEmpty) continue;
+      rects
+        ..add(bounds.left.floor())
+        ..add(bounds.top.floor())
+        ..add(bounds.right.ceil())
+        ..add(bounds.bottom.ceil());
+    }
+    return NativeMasks(
+      Int32List.fromList(rects),
+      _maskPainter.maskColor.toARGB32(),
+    );
+  }
+
+  /// Compress image with the native encoder and spool it to disk.
+  Future<SpooledFrame?> _spoolImage(ui.Image image, NativeMasks? masks) async {
+    try {
+      final byteData = await image.toByteData(
+        format: ui.ImageByteFormat.rawRgba,
+      );
+      if (byteData == null) return null;
+
+      // Only Android spools, so always Android's quality (see _compressImage)
+      return await _nativeCompressor!.compressToSpool(
+        byteData.buffer.asUint8List(),
+        width: image.width,
+        height: image.height,
+        quality: 80,
+        encoder: _nativeEncoder!,
+        masks: masks,
+      );
+    } catch (e) {
+      return null;
+    }
+  }
+
   /// Background isolate function for image compression
   static Uint8List? _compressInBackground(_CompressionParams params) {
     try {
@@ -272,6 +375,8 @@ class ScreenshotCapturer {
       switch (params.mode) {
         case CompressionMode.dartJpeg:
         case CompressionMode.nativeJpeg:
+        case CompressionMode.nativeWebp:
+        case CompressionMode.nativeGrayscale:
           return Uint8List.fromList(
             img.encodeJpg(imgImage, quality: params.jpegQuality),
           );
@@ -189,6 +189,8 @@ class SessionReplayCoordinator implements WidgetCoordinator {
     switch (result) {
       case CaptureSuccess(
         :final data,
+        :final spoolPath,
+        :final spoolLength,
         :final width,
         :final height,
         :final timestamp,
@@ -204,6 +206,8 @@ class SessionReplayCoordinator implements WidgetCoordinator {
         // Pass JPG bytes to event recorder to save with the capture timestamp
         await _eventRecorder.recordSnapshot(
           imageData: data,
+          spoolPath: spoolPath,
+          spoolLength: spoolLength,
           width: width,
           height: height,
           timestamp: timestamp,
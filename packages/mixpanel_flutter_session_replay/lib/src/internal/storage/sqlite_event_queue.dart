@@ -113,6 +113,7 @@ class SqliteEventQueue implements EventQueue {
       _logger.warning(
         'Queue quota exceeded ($currentSize + $eventSize > $quotaBytes), dropping event',
       );
+      await _deleteSpoolFiles([event]);
       return; // Drop the event instead of inserting
     }
 
@@ -281,9 +282,25 @@ class SqliteEventQueue implements EventQueue {
       whereArgs: eventIds,
     );
 
+    await _deleteSpoolFiles(events);
+
     _logger.debug('Removed ${events.length} events');
   }
 
+  /// Deletes the spool files of spooled screenshots; their rows no longer
+  /// reference them. Files the native spool already evicted are skipped.
+  Future<void> _deleteSpoolFiles(List<SessionReplayEvent> events) async {
+    for (final event in events) {
+      final payload = event.payload;
+      if (payload is! ScreenshotPayload || !payload.isSpooled) continue;
+      try {
+        await File(payload.spoolPath!).delete();
+      } on FileSystemException {
+        // Already evicted
+      }
+    }
+  }
+
   @override
   Future<void> dispose() async {
     await _db?.close();
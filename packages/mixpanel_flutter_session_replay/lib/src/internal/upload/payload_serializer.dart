@@ -57,9 +57,12 @@ class PayloadSerializer {
 
     // Add all events (converted to rrweb format)
     // MetadataPayload events are automatically converted to RRWeb Meta events
-    result.addAll(
-      events.map((e) => RRWebEvent.fromSessionReplayEvent(e).toJson()).toList(),
-    );
+    // Spooled screenshots are read from disk only now, one batch at a time
+    for (final event in events) {
+      final loaded = await _loadSpooled(event);
+      if (loaded == null) continue;
+      result.add(RRWebEvent.fromSessionReplayEvent(loaded).toJson());
+    }
 
     // Create JSON string
     final jsonString = jsonEncode(result);
@@ -77,6 +80,26 @@ class PayloadSerializer {
     );
   }
 
+  /// Returns [event] with its spooled screenshot bytes loaded, the event
+  /// itself if it isn't spooled, or null if the spool file is gone (evicted
+  /// by the native spool's size cap or cleared by the system).
+  Future<SessionReplayEvent?> _loadSpooled(SessionReplayEvent event) async {
+    final payload = event.payload;
+    if (payload is! ScreenshotPayload || !payload.isSpooled) return event;
+    try {
+      final bytes = await File(payload.spoolPath!).readAsBytes();
+      return SessionReplayEvent(
+        sessionId: event.sessionId,
+        distinctId: event.distinctId,
+        timestamp: event.timestamp,
+        type: event.type,
+        payload: payload.withImageData(bytes),
+      );
+    } on FileSystemException {
+      return null;
+    }
+  }
+
   String buildAuthHeader(String token) {
     final credentials = base64Encode(utf8.encode('$token:'));
     return 'Basic $credentials';
@@ -63,14 +63,30 @@ class RRWebEvent {
   ) {
     final base64Image = base64Encode(screenshot.imageData);
 
-    // Detect format from file signature (PNG: 89 50 4E 47, JPEG: FF D8)
+    // Detect format from file signature (PNG: 89 50 4E 47, WebP: RIFF....WEBP,
+    // JPEG: FF D8)
+    final data = screenshot.imageData;
     final isPng =
-        screenshot.imageData.length > 4 &&
-        screenshot.imageData[0] == 0x89 &&
-        screenshot.imageData[1] == 0x50 &&
-        screenshot.imageData[2] == 0x4E &&
-        screenshot.imageData[3] == 0x47;
-    final mimeType = isPng ? 'image/png' : 'image/jpeg';
+        data.length > 4 &&
+        data[0] == 0x89 &&
+        data[1] == 0x50 &&
+        data[2] == 0x4E &&
+        data[3] == 0x47;
+    final isWebp =
+        data.length > 12 &&
+        data[0] == 0x52 &&
+        data[1] == 0x49 &&
+        data[2] == 0x46 &&
+        data[3] == 0x46 &&
+        data[8] == 0x57 &&
+        data[9] == 0x45 &&
+        data[10] == 0x42 &&
+        data[11] == 0x50;
+    final mimeType = isPng
+        ? 'image/png'
+        : isWebp
+        ? 'image/webp'
+        : 'image/jpeg';
 
     // CSS styling — image fills viewport
     const cssText =
@@ -62,7 +62,7 @@ enum LogLevel {
 ///
 /// These options only apply to iOS and Android platforms.
 class MobileOptions {
-  const MobileOptions({this.wifiOnly = true});
+  const MobileOptions({this.wifiOnly = true, this.spoolFramesToDisk = false});
 
   /// Only upload on WiFi (default: true)
   ///
@@ -70,6 +70,15 @@ class MobileOptions {
   /// is connected to WiFi or Ethernet. Data is queued locally until a WiFi
   /// connection is available.
   final bool wifiOnly;
+
+  /// Keep compressed screenshots on disk until upload (default: false)
+  ///
+  /// When enabled, the native encoder writes each screenshot to a size-capped
+  /// spool directory in the app's cache and only the file path is kept in
+  /// memory and in the event queue. Screenshot memory use then no longer
+  /// grows while uploads are held back (e.g. off WiFi). If the spool fills
+  /// up, the oldest screenshots are dropped. Android only; ignored elsewhere.
+  final bool spoolFramesToDisk;
 }
 
 /// Platform-specific configuration options
@@ -106,9 +106,15 @@ sealed class CaptureResult {
 
 /// Successful capture result
 final class CaptureSuccess extends CaptureResult {
-  /// Captured screenshot data (JPEG bytes)
+  /// Captured screenshot data (JPEG bytes); empty when [spoolPath] is set
   final Uint8List data;
 
+  /// File holding the screenshot data when it was spooled to disk
+  final String? spoolPath;
+
+  /// Size of the spooled file in bytes (0 when not spooled)
+  final int spoolLength;
+
   /// Screenshot width in pixels
   final int width;
 
@@ -126,6 +132,8 @@ final class CaptureSuccess extends CaptureResult {
 
   const CaptureSuccess({
     required this.data,
+    this.spoolPath,
+    this.spoolLength = 0,
     required this.width,
     required this.height,
     required this.maskCount,
@@ -135,7 +143,7 @@ final class CaptureSuccess extends CaptureResult {
 
   @override
   String toString() {
-    return 'CaptureSuccess(${data.length} bytes, ${width}x$height, $maskCount masks)';
+    return 'CaptureSuccess(${spoolPath != null ? '$spoolLength bytes spooled' : '${data.length} bytes'}, ${width}x$height, $maskCount masks)';
   }
 }
 
@@ -34,11 +34,32 @@ class MetadataPayload extends EventPayload {
 }
 
 /// Payload for screenshot events
+///
+/// Screenshots spooled to disk by the native encoder carry only the file
+/// path ([spoolPath]); their [imageData] is empty until the uploader loads
+/// it with [withImageData].
 class ScreenshotPayload extends EventPayload {
   /// JPEG/PNG compressed image bytes
   final Uint8List imageData;
 
-  ScreenshotPayload({required this.imageData});
+  /// File holding the image bytes, for spooled screenshots
+  final String? spoolPath;
+
+  /// Size of the spooled file in bytes (0 when not spooled)
+  final int spoolLength;
+
+  ScreenshotPayload({
+    required this.imageData,
+    this.spoolPath,
+    this.spoolLength = 0,
+  });
+
+  /// Whether the image bytes live in [spoolPath] rather than [imageData]
+  bool get isSpooled => spoolPath != null;
+
+  /// Copy with the image bytes loaded, e.g. from the spool file
+  ScreenshotPayload withImageData(Uint8List data) =>
+      ScreenshotPayload(imageData: data);
 
   @override
   Map<String, dynamic> toJson() => {'screenshot_data': base64Encode(imageData)};
@@ -93,9 +114,11 @@ class SessionReplayEvent {
   /// Serialize to SQLite row for insertion
   Map<String, dynamic> toDbRow() {
     final serialized = _serializePayload(payload);
+    final payload = this.payload;
     final dataSize =
         (serialized['metadata']?.length ?? 0) +
-        (serialized['binary']?.length ?? 0);
+        (serialized['binary']?.length ?? 0) +
+        (payload is ScreenshotPayload ? payload.spoolLength : 0);
 
     return {
       'session_id': sessionId,
@@ -120,6 +143,16 @@ class SessionReplayEvent {
         'binary': null,
       };
     } else if (payload is ScreenshotPayload) {
+      if (payload.isSpooled) {
+        return {
+          'metadata': jsonEncode({
+            'spool_path': payload.spoolPath,
+            'spool_length': payload.spoolLength,
+            'version': 1,
+          }),
+          'binary': null,
+        };
+      }
       return {
         'metadata': jsonEncode({'version': 1}),
         'binary': payload.imageData,
@@ -155,6 +188,14 @@ class SessionReplayEvent {
         height: json['height'] as int,
       );
     } else if (type == EventType.screenshot) {
+      final spoolPath = json['spool_path'] as String?;
+      if (spoolPath != null) {
+        return ScreenshotPayload(
+          imageData: Uint8List(0),
+          spoolPath: spoolPath,
+          spoolLength: json['spool_length'] as int? ?? 0,
+        );
+      }
       return ScreenshotPayload(imageData: binary!);
     } else {
       // Interaction
@@ -188,7 +188,10 @@ class MixpanelSessionReplay {
       logger.debug('Event queue initialized');
 
       // Clear all data on app launch
+      final nativeCompressor = NativeImageCompressor();
       await queue.removeAll();
+      // Spooled screenshots belonged to the rows just cleared
+      await nativeCompressor.clearSpool();
       logger.debug('Cleared all existing data');
 
       // Create internal components
@@ -207,7 +210,8 @@ class MixpanelSessionReplay {
         directive: directive,
         logger: logger,
         debugOverlayEnabled: options.debugOptions?.overlayColors != null,
-        nativeCompressor: NativeImageCompressor(),
+        nativeCompressor: nativeCompressor,
+        spoolFramesToDisk: options.platformOptions.mobile.spoolFramesToDisk,
       );
 
       // Create instance first (before components) so we can reference it in closures
@@ -4,6 +4,7 @@ import 'package:flutter/foundation.dart' show kDebugMode;
 
 import '../internal/widget_coordinator.dart';
 import '../internal/capture/capture_scheduler.dart';
+import '../internal/capture/memory_pressure_monitor.dart';
 import '../internal/settings/settings_service.dart';
 import '../models/debug_overlay_colors.dart';
 import '../models/masking_directive.dart';
@@ -38,7 +39,10 @@ class _FrameMonitorState extends State<FrameMonitor> {
     super.initState();
 
     // Create timing scheduler (private to this widget)
-    _scheduler = CaptureScheduler(logger: widget.coordinator.logger);
+    _scheduler = CaptureScheduler(
+      logger: widget.coordinator.logger,
+      memoryPressure: MemoryPressureMonitor.instance..ensureListening(),
+    );
 
     // Listen to frame notifications from parent widget
     widget.frameNotifier.addListener(_onFrame);
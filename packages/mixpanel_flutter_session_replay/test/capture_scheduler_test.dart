@@ -1,6 +1,7 @@
 import 'package:fake_async/fake_async.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:mixpanel_flutter_session_replay/src/internal/capture/capture_scheduler.dart';
+import 'package:mixpanel_flutter_session_replay/src/internal/capture/memory_pressure_monitor.dart';
 import 'package:mixpanel_flutter_session_replay/src/internal/logger.dart';
 import 'package:mixpanel_flutter_session_replay/src/models/configuration.dart';
 
@@ -274,5 +275,63 @@ void main() {
         });
       });
     });
+
+    group('memory pressure', () {
+      test('stretches the interval under low memory', () {
+        fakeAsync((async) {
+          // GIVEN
+          final monitor = MemoryPressureMonitor();
+          final scheduler = CaptureScheduler(
+            logger: MixpanelLogger(LogLevel.none),
+            memoryPressure: monitor,
+          );
+          monitor.report(MemoryPressure.low);
+          scheduler.markCaptureStarted();
+          scheduler.markCaptureCompleted();
+
+          // WHEN - the normal interval has elapsed
+          async.elapse(Duration(milliseconds: 500));
+
+          // THEN - still rate limited by the stretched interval
+          expect(scheduler.canCapture(), false);
+
+          // WHEN - the stretched interval has elapsed
+          async.elapse(Duration(milliseconds: 1500));
+
+          // THEN
+          expect(scheduler.canCapture(), true);
+
+          scheduler.dispose();
+        });
+      });
+
+      test('stops capturing under critical memory until the report lapses', () {
+        fakeAsync((async) {
+          // GIVEN
+          final monitor = MemoryPressureMonitor(
+            holdDuration: Duration(seconds: 30),
+          );
+          final scheduler = CaptureScheduler(
+            logger: MixpanelLogger(LogLevel.none),
+            memoryPressure: monitor,
+          );
+
+          // WHEN
+          monitor.report(MemoryPressure.critical);
+
+          // THEN
+          expect(scheduler.canCapture(), false);
+          expect(scheduler.scheduleAfterRateLimit(() {}), isNull);
+
+          // WHEN - the report lapses
+          async.elapse(Duration(seconds: 30));
+
+          // THEN
+          expect(scheduler.canCapture(), true);
+
+          scheduler.dispose();
+        });
+      });
+    });
   });
 }
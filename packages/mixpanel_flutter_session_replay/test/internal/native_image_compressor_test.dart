@@ -0,0 +1,106 @@
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+import 'package:mixpanel_flutter_session_replay/src/internal/native_image_compressor.dart';
+
+void main() {
+  TestWidgetsFlutterBinding.ensureInitialized();
+
+  const channel = MethodChannel('com.mixpanel.flutter_session_replay');
+  late List<MethodCall> calls;
+  late Object? reply;
+
+  setUp(() {
+    calls = [];
+    reply = null;
+    TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+        .setMockMethodCallHandler(channel, (call) async {
+          calls.add(call);
+          return reply;
+        });
+  });
+
+  tearDown(() {
+    TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+        .setMockMethodCallHandler(channel, null);
+  });
+
+  group('NativeImageCompressor', () {
+    test('sends mask rectangles and color with the frame', () async {
+      // GIVEN
+      final compressor = NativeImageCompressor();
+      reply = Uint8List.fromList([0xFF, 0xD8]);
+
+      // WHEN
+      final result = await compressor.compress(
+        Uint8List(16),
+        width: 2,
+        height: 2,
+        quality: 80,
+        masks: NativeMasks(Int32List.fromList([0, 0, 1, 2]), 0xFFCCCCCC),
+      );
+
+      // THEN
+      expect(result, reply);
+      final args = calls.single.arguments as Map;
+      expect(args['masks'], [0, 0, 1, 2]);
+      // Travels as a signed 32-bit int
+      expect(args['maskColor'], 0xFFCCCCCC.toSigned(32));
+      expect(args.containsKey('spool'), isFalse);
+    });
+
+    test('omits masks when none are given', () async {
+      // GIVEN
+      final compressor = NativeImageCompressor();
+      reply = Uint8List(1);
+
+      // WHEN
+      await compressor.compress(Uint8List(4), width: 1, height: 1, quality: 80);
+
+      // THEN
+      final args = calls.single.arguments as Map;
+      expect(args.containsKey('masks'), isFalse);
+      expect(args.containsKey('maskColor'), isFalse);
+    });
+
+    test('compressToSpool returns the spooled file handle', () async {
+      // GIVEN
+      final compressor = NativeImageCompressor();
+      reply = {'path': '/cache/spool/1.frame', 'size': 2048};
+
+      // WHEN
+      final frame = await compressor.compressToSpool(
+        Uint8List(4),
+        width: 1,
+        height: 1,
+        quality: 80,
+      );
+
+      // THEN
+      expect((calls.single.arguments as Map)['spool'], isTrue);
+      expect(frame?.path, '/cache/spool/1.frame');
+      expect(frame?.length, 2048);
+    });
+
+    test('compressToSpool returns null when the native call fails', () async {
+      // GIVEN
+      final compressor = NativeImageCompressor();
+      TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger
+          .setMockMethodCallHandler(channel, (call) async {
+            throw PlatformException(code: 'COMPRESSION_ERROR');
+          });
+
+      // WHEN
+      final frame = await compressor.compressToSpool(
+        Uint8List(4),
+        width: 1,
+        height: 1,
+        quality: 80,
+      );
+
+      // THEN
+      expect(frame, isNull);
+    });
+  });
+}
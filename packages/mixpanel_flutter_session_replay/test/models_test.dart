@@ -236,6 +236,33 @@ void main() {
         expect(row['data_size'], greaterThan(0));
       });
 
+      test('serializes spooled screenshot as path and counts file size', () {
+        // GIVEN
+        final event = SessionReplayEvent(
+          sessionId: 'session-1',
+          distinctId: 'user-1',
+          timestamp: DateTime.fromMillisecondsSinceEpoch(1000, isUtc: true),
+          type: EventType.screenshot,
+          payload: ScreenshotPayload(
+            imageData: Uint8List(0),
+            spoolPath: '/spool/1.frame',
+            spoolLength: 4096,
+          ),
+        );
+
+        // WHEN
+        final row = event.toDbRow();
+
+        // THEN
+        expect(row['payload_binary'], isNull);
+        expect(row['data_size'], greaterThan(4096));
+        final metadata =
+            jsonDecode(row['payload_metadata'] as String)
+                as Map<String, dynamic>;
+        expect(metadata['spool_path'], '/spool/1.frame');
+        expect(metadata['spool_length'], 4096);
+      });
+
       test('serializes metadata event correctly', () {
         // GIVEN
         final expectedWidth = 375;
@@ -335,6 +362,35 @@ void main() {
 
         final payload = event.payload as ScreenshotPayload;
         expect(payload.imageData, expectedImageData);
+        expect(payload.isSpooled, isFalse);
+      });
+
+      test('deserializes spooled screenshot event from database row', () {
+        // GIVEN
+        final row = {
+          'id': 1,
+          'data_size': 4096,
+          'session_id': 'session-1',
+          'distinct_id': 'user-1',
+          'timestamp': 1000,
+          'type': EventType.screenshot.index,
+          'payload_metadata': jsonEncode({
+            'spool_path': '/spool/1.frame',
+            'spool_length': 4096,
+            'version': 1,
+          }),
+          'payload_binary': null,
+        };
+
+        // WHEN
+        final event = PersistedSessionReplayEvent.fromDbRow(row);
+
+        // THEN
+        final payload = event.payload as ScreenshotPayload;
+        expect(payload.isSpooled, isTrue);
+        expect(payload.spoolPath, '/spool/1.frame');
+        expect(payload.spoolLength, 4096);
+        expect(payload.imageData, isEmpty);
       });
 
       test('deserializes metadata event from database row', () {
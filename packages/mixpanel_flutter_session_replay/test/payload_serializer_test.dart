@@ -265,6 +265,54 @@ void main() {
         expect(json[1]['type'], RRWebEventType.fullSnapshot);
         expect(json[2]['type'], RRWebEventType.incrementalSnapshot);
       });
+
+      test('loads spooled screenshots from disk and skips evicted ones', () async {
+        // GIVEN
+        final spoolDir = Directory.systemTemp.createTempSync('spool');
+        addTearDown(() => spoolDir.deleteSync(recursive: true));
+        final imageData = Uint8List.fromList([0xFF, 0xD8, 0x05, 0x06]);
+        final spooled = File('${spoolDir.path}/1.frame')
+          ..writeAsBytesSync(imageData);
+
+        SessionReplayEvent screenshot(String path, int timestampMs) {
+          return SessionReplayEvent(
+            sessionId: 'session-1',
+            distinctId: 'user-1',
+            timestamp: DateTime.fromMillisecondsSinceEpoch(
+              timestampMs,
+              isUtc: true,
+            ),
+            type: EventType.screenshot,
+            payload: ScreenshotPayload(
+              imageData: Uint8List(0),
+              spoolPath: path,
+              spoolLength: imageData.length,
+            ),
+          );
+        }
+
+        final events = [
+          screenshot('${spoolDir.path}/evicted.frame', 100),
+          screenshot(spooled.path, 200),
+        ];
+
+        final session = Session(
+          id: 'session-1',
+          startTime: DateTime.fromMillisecondsSinceEpoch(1000, isUtc: true),
+          status: SessionStatus.active,
+        );
+
+        // WHEN
+        final result = await serializer.serialize(events, session, 'user-1', 0);
+
+        // THEN
+        final decompressed = gzip.decode(result.body as List<int>);
+        final json = jsonDecode(utf8.decode(decompressed)) as List<dynamic>;
+
+        expect(json.length, 1);
+        expect(json[0]['timestamp'], 200);
+        expect(jsonEncode(json[0]), contains(base64Encode(imageData)));
+      });
     });
 
     group('buildAuthHeader', () {
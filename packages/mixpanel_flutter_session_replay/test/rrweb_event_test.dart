@@ -135,6 +135,33 @@ void main() {
         );
       });
 
+      test('converts WebP screenshot event with correct mime type', () {
+        // GIVEN - WebP container: "RIFF" <size> "WEBP"
+        final webpData = Uint8List.fromList([
+          0x52, 0x49, 0x46, 0x46, 0x10, 0x00, 0x00, 0x00, //
+          0x57, 0x45, 0x42, 0x50, 0x56, 0x50, 0x38, 0x20,
+        ]);
+        final expectedBase64 = base64Encode(webpData);
+        final event = SessionReplayEvent(
+          sessionId: 'session-1',
+          distinctId: 'user-1',
+          timestamp: DateTime.fromMillisecondsSinceEpoch(1000, isUtc: true),
+          type: EventType.screenshot,
+          payload: ScreenshotPayload(imageData: webpData),
+        );
+
+        // WHEN
+        final rrweb = RRWebEvent.fromSessionReplayEvent(event);
+
+        // THEN
+        final node = rrweb.data['node'] as Map<String, dynamic>;
+        final imgNode = _findNodeById(node, RRWebNodeIds.mainImage);
+        expect(
+          imgNode!['attributes']['src'],
+          'data:image/webp;base64,$expectedBase64',
+        );
+      });
+
       test('screenshot DOM structure has expected node IDs', () {
         // GIVEN
         final event = SessionReplayEvent(